@@ -1,50 +1,107 @@
 package com.webgeoservices.multisearch;
 
 import android.content.Context;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.webgeoservices.multisearch.configs.HttpCachePolicy;
 import com.webgeoservices.multisearch.configs.ProviderConfig;
+import com.webgeoservices.multisearch.interfaces.DebouncePolicy;
 import com.webgeoservices.multisearch.interfaces.Scorable;
+import com.webgeoservices.multisearch.interfaces.TopKScorable;
 import com.webgeoservices.multisearch.listeners.MultiSearchListener;
+import com.webgeoservices.multisearch.listeners.MultiSearchStreamListener;
+import com.webgeoservices.multisearch.models.SearchRetrofitClient;
 import com.webgeoservices.multisearch.providers.AbstractProvider;
 import com.webgeoservices.multisearch.providers.AddressProvider;
 import com.webgeoservices.multisearch.providers.LocalitiesProvider;
 import com.webgeoservices.multisearch.providers.PlacesProvider;
 import com.webgeoservices.multisearch.providers.StoreProvider;
-import com.webgeoservices.multisearch.scorers.FuseScorer;
+import com.webgeoservices.multisearch.reactive.AutocompletePublisher;
+import com.webgeoservices.multisearch.scheduling.FixedDebouncePolicy;
+import com.webgeoservices.multisearch.scheduling.KeystrokeScheduler;
+import com.webgeoservices.multisearch.scorers.BitapScorer;
+import com.webgeoservices.multisearch.scorers.ParallelScorer;
+import com.webgeoservices.multisearch.scorers.ScorerRegistry;
+import com.webgeoservices.multisearch.scorers.ScoringConfiguration;
 import com.webgeoservices.multisearch.searchdatamodels.AutocompleteResponseItem;
+import com.webgeoservices.multisearch.utils.CancellationToken;
+import com.webgeoservices.multisearch.utils.DetailsDiskCache;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.reactivestreams.Publisher;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /***
  * MultiSearch class which exposes <code>autocomplete</code> and <code>details</code> methods
  */
 public class MultiSearch {
+    /***
+     * Number of threads of the default network executor
+     */
+    private static final int DEFAULT_NETWORK_THREADS = 4;
+
+    /***
+     * Number of threads of the scoring pool, which is also the default scoring executor
+     */
+    private static final int DEFAULT_SCORING_THREADS = 2;
+
+    private static final AtomicInteger executorCounter = new AtomicInteger();
+    private static ScheduledExecutorService deadlineExecutor;
+
     private LinkedHashMap<SearchProviderType, AbstractProvider> providers = new LinkedHashMap<>();
     private MultiSearchListener listener;
+    private MultiSearchStreamListener streamListener;
     private long debounceTime=0;
-    private Scorable scorable;
+    private DebouncePolicy debouncePolicy;
+    private int speculativeProviderCount=0;
+    private long latencyBudget=0;
+    private boolean cancelProvidersAtDeadline=true;
+    private ScorerRegistry scorerRegistry;
+    private CompletableFuture<Scorable> scorerFuture;
+    private CompletableFuture<Void> scorerWarmUp;
     private Context context;
-    private CompletableFuture completableFuture;
-    private String lastSearchString="";
-    private SearchProviderType lastApiCalled=null;
-    private int lastResultCount=-1;
-    private String searchString;
-    private Handler handler;
-    private Runnable runnable;
+    //Written by the threads running the autocomplete requests, including the revalidations on the network executor
+    private volatile CompletableFuture<?> completableFuture;
+    private volatile String lastSearchString="";
+    private volatile SearchProviderType lastApiCalled=null;
+    private volatile int lastResultCount=-1;
+    private final AtomicLong autocompleteRequestId = new AtomicLong();
+    private CancellationToken cancellationToken;
+    private Executor networkExecutor;
+    private ThreadPoolExecutor defaultNetworkExecutor;
+    private Executor scoringExecutor;
+    private ForkJoinPool scoringPool;
+    private KeystrokeScheduler keystrokeScheduler;
+    private DetailsDiskCache detailsCache;
+    private boolean detailsCacheReplaced=false;
+    private CompletableFuture<File> cacheInitialization;
 
 
     /***
@@ -75,8 +132,58 @@ public class MultiSearch {
         }
         this.context = context;
         this.debounceTime = debounceTime;
-        initializeScorer();
-        handler = new Handler(Looper.getMainLooper());
+        this.debouncePolicy = new FixedDebouncePolicy(debounceTime);
+        this.scoringPool = newDefaultScoringPool(DEFAULT_SCORING_THREADS);
+        this.scorerRegistry = initializeScorerRegistry();
+        this.defaultNetworkExecutor = newDefaultExecutor("multisearch-network", DEFAULT_NETWORK_THREADS);
+        this.networkExecutor = defaultNetworkExecutor;
+        this.scoringExecutor = scoringPool;
+        keystrokeScheduler = new KeystrokeScheduler();
+        cacheInitialization = CompletableFuture.supplyAsync(this::initializeCaches, networkExecutor);
+    }
+
+    /***
+     * Creates the details cache and the default HTTP cache in the cache directory of the application.
+     * Runs on the network executor since resolving the cache directory may touch the disk
+     * @return the cache directory or null if it is not available
+     */
+    private File initializeCaches(){
+        File cacheDirectory;
+        try{
+            cacheDirectory = context.getCacheDir();
+        }
+        catch (Exception ex){
+            Log.e(MultiSearch.class.getName(),ex.toString());
+            return null;
+        }
+        if (cacheDirectory == null){
+            return null;
+        }
+        synchronized (this){
+            if (!detailsCacheReplaced){
+                detailsCache = new DetailsDiskCache(cacheDirectory);
+            }
+        }
+        if (SearchRetrofitClient.getHttpCache() == null){
+            SearchRetrofitClient.setHttpCache(getHttpCacheDirectory(cacheDirectory), new HttpCachePolicy.Builder().build());
+        }
+        return cacheDirectory;
+    }
+
+    /***
+     * Attaches the details cache and the negative prefix cache file to the provider once the caches are initialized
+     * @param provider - the provider
+     */
+    private void attachCaches(AbstractProvider provider){
+        cacheInitialization.thenAccept(cacheDirectory -> {
+            if (cacheDirectory == null){
+                return;
+            }
+            synchronized (this){
+                provider.setDetailsCache(detailsCache);
+            }
+            provider.setNegativeCacheDirectory(cacheDirectory);
+        });
     }
 
 
@@ -94,28 +201,342 @@ public class MultiSearch {
      */
     public void setDebounceTime(long debounceTime) {
         this.debounceTime = debounceTime;
+        this.debouncePolicy = new FixedDebouncePolicy(debounceTime);
     }
 
     /***
-     * Initializes scorer object which scores and sorts the results returned by APIs
+     * Returns the scheduler running the autocomplete requests of the keystrokes. Exposes the queue depth and the dropped keystrokes counters
+     * @return KeystrokeScheduler
      */
-    private void initializeScorer(){
-        JSONObject fuseConfiguration = new JSONObject();
-        JSONArray keys = new JSONArray();
-        try{
-            keys.put("description");
+    public KeystrokeScheduler getKeystrokeScheduler() {
+        return keystrokeScheduler;
+    }
+
+    /***
+     * Replaces the scheduler running the autocomplete requests of the keystrokes. The pending request of the previous scheduler is dropped
+     * @param keystrokeScheduler - the scheduler
+     */
+    public void setKeystrokeScheduler(@NonNull KeystrokeScheduler keystrokeScheduler) {
+        if (this.keystrokeScheduler != null){
+            this.keystrokeScheduler.cancel();
+        }
+        this.keystrokeScheduler = keystrokeScheduler;
+    }
 
-            fuseConfiguration.put("includeScore",true);
-            fuseConfiguration.put("findAllMatches",true);
-            fuseConfiguration.put("ignoreLocation",true);
-            fuseConfiguration.put("ignoreFieldNorm",true);
-            fuseConfiguration.put("threshold",0.6);
-            fuseConfiguration.put("keys",keys);
-            scorable = FuseScorer.getInstance(context,fuseConfiguration);
+    /***
+     * Releases the threads owned by this object: the thread of the keystroke scheduler, the default network executor and the scoring pool.
+     * The pending keystroke is dropped and the ongoing request is cancelled without notifying the listeners.
+     * The pending changes of the persisted negative caches are written.
+     * Executors set through <code>setNetworkExecutor</code> or <code>setScoringExecutor</code> are not stopped. The object can not be used afterwards
+     */
+    public void shutdown(){
+        keystrokeScheduler.shutdown();
+        synchronized (this){
+            if (cancellationToken != null){
+                cancellationToken.cancel();
+            }
         }
-        catch (JSONException ex){
-            Log.d(MultiSearch.class.getName(),ex.toString());
+        CompletableFuture<?> ongoingRequest = completableFuture;
+        if (ongoingRequest != null){
+            ongoingRequest.cancel(true);
         }
+        defaultNetworkExecutor.shutdown();
+        scoringPool.shutdown();
+        for (AbstractProvider provider : providers.values()){
+            provider.getNegativeCache().flush();
+        }
+    }
+
+    /***
+     * Returns the policy choosing how long the autocomplete methods wait after each keystroke
+     * @return DebouncePolicy
+     */
+    public DebouncePolicy getDebouncePolicy() {
+        return debouncePolicy;
+    }
+
+    /***
+     * Sets the policy choosing how long the autocomplete methods wait after each keystroke.
+     * Use <code>AdaptiveDebouncePolicy</code> to adapt the delay to the typing cadence and to the latency of the requests.
+     * <code>setDebounceTime</code> replaces it with a <code>FixedDebouncePolicy</code>
+     * @param debouncePolicy An object implementing <code>DebouncePolicy</code> interface
+     */
+    public void setDebouncePolicy(@NonNull DebouncePolicy debouncePolicy) {
+        this.debouncePolicy = debouncePolicy;
+    }
+
+    /***
+     * Sets the executor running the provider API calls of <code>autocomplete</code> and <code>details</code>.
+     * These tasks block on network I/O. By default a small dedicated pool with named threads is used so they never run on the common <code>ForkJoinPool</code>
+     * @param networkExecutor - the executor
+     */
+    public synchronized void setNetworkExecutor(@NonNull Executor networkExecutor){
+        this.networkExecutor = networkExecutor;
+    }
+
+    /***
+     * Sets the executor scoring the provider results and warming up the scorers.
+     * By default the scoring pool of this object is used, so the scoring tasks and the partitions of large result lists share the same bounded pool of named threads.
+     * The partitions are always scored on the scoring pool, whatever the executor.
+     * When it is the same as the network executor, the results are scored on the network thread
+     * @param scoringExecutor - the executor
+     */
+    public synchronized void setScoringExecutor(@NonNull Executor scoringExecutor){
+        this.scoringExecutor = scoringExecutor;
+    }
+
+    /***
+     * Creates a pool of daemon threads which stop when idle
+     * @param name - prefix of the thread names
+     * @param threads - maximum number of threads
+     * @return ThreadPoolExecutor
+     */
+    private static ThreadPoolExecutor newDefaultExecutor(String name, int threads){
+        final String namePrefix = name + "-" + executorCounter.incrementAndGet() + "-";
+        final AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /***
+     * Creates the fork-join pool owned by this object, which scores the partitions of large result lists.
+     * Its daemon worker threads stop when idle
+     * @param parallelism - maximum number of threads
+     * @return ForkJoinPool
+     */
+    private static ForkJoinPool newDefaultScoringPool(int parallelism){
+        final String namePrefix = "multisearch-scoring-pool-" + executorCounter.incrementAndGet() + "-";
+        final AtomicInteger threadCounter = new AtomicInteger();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(namePrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /***
+     * Returns the number of providers searched ahead of their turn in the fallback chain
+     * @return int
+     */
+    public int getSpeculativeProviderCount() {
+        return speculativeProviderCount;
+    }
+
+    /***
+     * Enables the speculative mode of <code>autocompleteMulti</code>.
+     * When a provider is searched, the next <code>speculativeProviderCount</code> providers of the chain are searched at the same time
+     * instead of waiting for the fallback decision. Decisions are still taken in the order of the chain, and the searches which turn out
+     * not to be needed are cancelled and their results discarded. This trades extra API calls for a lower latency when the fallback is triggered.
+     * 0 (the default) disables the speculative mode
+     * @param speculativeProviderCount - number of providers searched ahead
+     */
+    public void setSpeculativeProviderCount(int speculativeProviderCount) {
+        if (speculativeProviderCount < 0){
+            throw new IllegalArgumentException("speculativeProviderCount must be greater than or equal to 0");
+        }
+        this.speculativeProviderCount = speculativeProviderCount;
+    }
+
+    /***
+     * Returns the time after which an autocomplete request delivers the results available so far
+     * @return the budget in ms
+     */
+    public long getLatencyBudget() {
+        return latencyBudget;
+    }
+
+    /***
+     * Bounds the time an autocomplete request waits for its providers.
+     * When the budget is spent, the listener receives the results of the providers which finished, in the order of the chain,
+     * and the providers still running are cancelled or continue in the background, depending on <code>setCancelProvidersAtDeadline</code>.
+     * 0 (the default) waits for all the providers
+     * @param latencyBudget - the budget in ms, counted from the start of the request
+     */
+    public void setLatencyBudget(long latencyBudget) {
+        if (latencyBudget < 0){
+            throw new IllegalArgumentException("latencyBudget must be greater than or equal to 0");
+        }
+        this.latencyBudget = latencyBudget;
+    }
+
+    /***
+     * Returns if the providers still running when the latency budget is spent are cancelled
+     * @return boolean
+     */
+    public boolean shouldCancelProvidersAtDeadline() {
+        return cancelProvidersAtDeadline;
+    }
+
+    /***
+     * Specifies what happens to the providers still running when the latency budget is spent.
+     * If true (the default) their API calls are cancelled. If false they complete in the background, without notifying the listeners,
+     * so their responses are kept by the providers and can answer the next keystrokes. The next requests do not cancel these calls,
+     * they only stop the request before its next stage, e.g. before scoring. <code>details</code> calls still cancel the ongoing calls of their provider
+     * @param cancelProvidersAtDeadline - true to cancel the providers
+     */
+    public void setCancelProvidersAtDeadline(boolean cancelProvidersAtDeadline) {
+        this.cancelProvidersAtDeadline = cancelProvidersAtDeadline;
+    }
+
+    /***
+     * Starts warming up the scorers of the added providers on a background thread and returns immediately.
+     * Call it early (e.g. in <code>onCreate</code>) after adding the providers so the first <code>autocomplete</code> call does not wait for the scorers.
+     * If not called, the scorer of a provider is initialized the first time its results are scored.
+     * Does nothing while a warm-up is running. A failed warm-up is logged and can be started again
+     */
+    public synchronized void prewarm(){
+        if (scorerFuture != null || (scorerWarmUp != null && !scorerWarmUp.isDone())){
+            return; //A scorer set through setScorer is warmed up when it is set
+        }
+        final List<ScoringConfiguration> configurations = new ArrayList<>();
+        for (AbstractProvider provider : providers.values()){
+            configurations.add(provider.getProviderConfig().getScoringConfiguration());
+        }
+        final ScorerRegistry registry = scorerRegistry;
+        scorerWarmUp = CompletableFuture.runAsync(()->{
+            for (ScoringConfiguration configuration : configurations){
+                registry.getScorer(configuration).prewarm();
+            }
+        },scoringExecutor);
+    }
+
+    /***
+     * Returns the scorer of the provider. Waits for the warm-up to complete if it is still running
+     * @param provider - the provider whose results need to be scored
+     * @return Scorable
+     */
+    private Scorable getScorer(AbstractProvider provider){
+        CompletableFuture<Scorable> customScorer;
+        CompletableFuture<Void> warmUp;
+        ScorerRegistry registry;
+        synchronized (this){
+            customScorer = scorerFuture;
+            warmUp = scorerWarmUp;
+            registry = scorerRegistry;
+        }
+        if (customScorer != null){
+            return customScorer.join();
+        }
+        if (warmUp != null){
+            try{
+                warmUp.join();
+            }
+            catch (CompletionException ex){
+                //The scorer is initialized again below, the next prewarm call retries the warm-up
+                Log.e(MultiSearch.class.getName(),ex.toString());
+                synchronized (this){
+                    if (scorerWarmUp == warmUp){
+                        scorerWarmUp = null;
+                    }
+                }
+            }
+        }
+        return registry.getScorer(provider.getProviderConfig().getScoringConfiguration());
+    }
+
+    /***
+     * Scores and sorts the results of the provider on the scoring executor. When the provider has a result limit only the best results having a score
+     * lower than or equal to the cutoff are kept
+     * @param provider - the provider whose results need to be scored
+     * @param data - the provider results
+     * @param searchString - the search string
+     * @param scoreCutoff - results having a greater score are dropped when the provider has a result limit
+     * @return A List of JSONObject (s) which are scored and sorted
+     */
+    private List<JSONObject> scoreResults(AbstractProvider provider, List<JSONObject> data, String searchString, float scoreCutoff){
+        Executor executor = scoringExecutor;
+        if (executor == networkExecutor){
+            return scoreResultsNow(provider, data, searchString, scoreCutoff);
+        }
+        return CompletableFuture.supplyAsync(() -> scoreResultsNow(provider, data, searchString, scoreCutoff), executor).join();
+    }
+
+    /***
+     * Scores and sorts the results of the provider on the calling thread
+     */
+    private List<JSONObject> scoreResultsNow(AbstractProvider provider, List<JSONObject> data, String searchString, float scoreCutoff){
+        Scorable scorer = getScorer(provider);
+        int resultLimit = provider.getProviderConfig().getResultLimit();
+        float fallbackBreakpoint = provider.getProviderConfig().getFallbackBreakpoint();
+        if (resultLimit <= 0){
+            return scorer.scoreResults(data, searchString, fallbackBreakpoint);
+        }
+        if (scorer instanceof TopKScorable){
+            return ((TopKScorable) scorer).scoreResults(data, searchString, fallbackBreakpoint, resultLimit, scoreCutoff);
+        }
+        List<JSONObject> scoredData = scorer.scoreResults(data, searchString, fallbackBreakpoint);
+        return scoredData.size() > resultLimit ? new ArrayList<>(scoredData.subList(0, resultLimit)) : scoredData;
+    }
+
+    /***
+     * Answers the search string with the complete results of a previous search string it extends, instead of calling the API.
+     * Since the results of the search string are a subset of these results, they are scored again and only the ones matching the search string are kept
+     * @param provider - the provider
+     * @param searchString - the search string
+     * @param scoreCutoff - results having a score greater than this value do not match the search string
+     * @return the scored and sorted results or null if the API must be called, i.e. if there are no complete previous results or none of them matches
+     */
+    private List<JSONObject> narrowPreviousCandidates(AbstractProvider provider, String searchString, float scoreCutoff){
+        List<JSONObject> candidates = provider.getNarrowingCandidates(searchString);
+        if (candidates == null || candidates.isEmpty()){
+            return null;
+        }
+        List<JSONObject> narrowedResult = new ArrayList<>();
+        for (JSONObject scoredItem : scoreResults(provider,candidates,searchString,scoreCutoff)){
+            if (scoredItem.optDouble("score", Double.MAX_VALUE) <= scoreCutoff){
+                narrowedResult.add(scoredItem);
+            }
+        }
+        return narrowedResult.isEmpty() ? null : narrowedResult;
+    }
+
+    /***
+     * Creates the default scorer registry.
+     * Uses <code>BitapScorer</code>, a native port of Fuse.js, so no Javascript engine is needed.
+     * Large result lists are scored on several cores by <code>ParallelScorer</code>, on the scoring pool of this object
+     * @return ScorerRegistry
+     */
+    private ScorerRegistry initializeScorerRegistry(){
+        final ForkJoinPool pool = scoringPool;
+        return new ScorerRegistry(configuration -> new ParallelScorer(new BitapScorer(configuration.toFuseOptions()), pool));
+    }
+
+    /***
+     * Replaces the scorer which scores and sorts the results of every provider.
+     * Use it to switch back to the Javascript based <code>FuseScorer</code>, which requires the application to add the LiquidCore dependency,
+     * or to provide a custom implementation.
+     * Scorers which are not thread safe, like <code>FuseScorer</code>, should be wrapped in a <code>ScorerPool</code>.
+     * The scorer is warmed up on a background thread and the next <code>autocomplete</code> call waits for it.
+     * If the warm-up fails, it is logged and the scorer initializes itself when it is first used
+     * @param scorable An object implementing <code>Scorable</code> interface
+     */
+    public synchronized void setScorer(@NonNull Scorable scorable){
+        scorerFuture = CompletableFuture.supplyAsync(()->{
+            try{
+                scorable.prewarm();
+            }
+            catch (Exception ex){
+                Log.e(MultiSearch.class.getName(),ex.toString());
+            }
+            return scorable;
+        },scoringExecutor);
+    }
+
+    /***
+     * Replaces the registry which provides a scorer per provider <code>ScoringConfiguration</code>.
+     * Overrides any scorer set through <code>setScorer</code>
+     * @param scorerRegistry A <code>ScorerRegistry</code> object
+     */
+    public synchronized void setScorerRegistry(@NonNull ScorerRegistry scorerRegistry){
+        this.scorerRegistry = scorerRegistry;
+        this.scorerFuture = null;
+        this.scorerWarmUp = null;
     }
 
     /***
@@ -133,6 +554,61 @@ public class MultiSearch {
         }else if(providerConfig.getType().equals(SearchProviderType.PLACES)){
             providers.put(SearchProviderType.PLACES,new PlacesProvider(providerConfig));
         }
+        if (providers.containsKey(providerConfig.getType())){
+            attachCaches(providers.get(providerConfig.getType()));
+        }
+    }
+
+    /***
+     * Returns the persistent cache of the details payloads, stored in the cache directory of the application.
+     * Waits for the caches to be initialized in the background if needed
+     * @return <code>DetailsDiskCache</code> object or null if the details are not cached
+     */
+    public DetailsDiskCache getDetailsCache() {
+        cacheInitialization.join();
+        synchronized (this){
+            return detailsCache;
+        }
+    }
+
+    /***
+     * Replaces the persistent cache of the details payloads used by all the providers, for example to change its maximum size.
+     * Null disables the details cache. The time to live of the payloads is set per provider through <code>ProviderConfig.Builder.detailsCacheTtl</code>
+     * @param detailsCache - the details cache
+     */
+    public synchronized void setDetailsCache(DetailsDiskCache detailsCache) {
+        this.detailsCache = detailsCache;
+        this.detailsCacheReplaced = true;
+        for (AbstractProvider provider : providers.values()){
+            provider.setDetailsCache(detailsCache);
+        }
+    }
+
+    /***
+     * Returns the HTTP cache of the API responses, stored in the cache directory of the application.
+     * Responses with an <code>ETag</code> or <code>Last-Modified</code> header are revalidated with conditional requests once expired
+     * @return <code>okhttp3.Cache</code> object, which exposes the request, network and hit counts, or null if the HTTP cache is disabled
+     */
+    public okhttp3.Cache getHttpCache() {
+        return SearchRetrofitClient.getHttpCache();
+    }
+
+    /***
+     * Sets the size of the HTTP cache and the endpoints whose responses are cached.
+     * The HTTP cache is shared by all the MultiSearch instances. Null disables it.
+     * The policy is applied in the background, once the cache directory is resolved
+     * @param httpCachePolicy - the HTTP cache policy
+     */
+    public void setHttpCachePolicy(HttpCachePolicy httpCachePolicy) {
+        cacheInitialization.thenAccept(cacheDirectory -> {
+            if (cacheDirectory != null || httpCachePolicy == null){
+                SearchRetrofitClient.setHttpCache(cacheDirectory == null ? null : getHttpCacheDirectory(cacheDirectory), httpCachePolicy);
+            }
+        });
+    }
+
+    private static File getHttpCacheDirectory(File cacheDirectory){
+        return new File(cacheDirectory, "multisearch-http");
     }
 
     /***
@@ -158,41 +634,85 @@ public class MultiSearch {
         this.listener=listener;
     }
 
+    /***
+     * Attaches <code>MultiSearchStreamListener</code> callback which receives the results of each provider as soon as they are available
+     * @param streamListener An object implementing <code>MultiSearchStreamListener</code> callback interface
+     */
+    public void addSearchStreamListener(MultiSearchStreamListener streamListener){
+        this.streamListener=streamListener;
+    }
+
+    /**
+     * autocomplete API implementation of all the providers present in the collection
+     * @param searchString - the trimmed search string
+     * @param requestListener - the listener receiving the results of the request
+     * @param requestStreamListener - the stream listener receiving the results of each provider of the request
+     */
+    private void autocomplete(String searchString, MultiSearchListener requestListener, MultiSearchStreamListener requestStreamListener){
+        autocomplete(searchString,requestListener,requestStreamListener,null);
+    }
+
     /**
      * autocomplete API implementation of all the providers present in the collection
+     * @param searchString - the trimmed search string
+     * @param requestListener - the listener receiving the results of the request
+     * @param requestStreamListener - the stream listener receiving the results of each provider of the request
+     * @param revalidation - the request whose stale responses were revalidated or null for a new request.
+     *                     A revalidation runs from the fresh cached responses, does not cancel a newer request and only notifies the listener if the results changed
      */
-    private void autocomplete(){
+    private void autocomplete(String searchString, MultiSearchListener requestListener, MultiSearchStreamListener requestStreamListener, Revalidation revalidation){
         if (isProviderConfigCollectionEmpty()){
             throw new IllegalStateException(context.getString(R.string.__wgs_no_config_provided_error));
         }
         //return if there is no input given
         if (searchString.trim().equalsIgnoreCase("")){
-            if(listener!=null){
-                listener.onSearchComplete(new ArrayList<>(),null);
+            renewCancellationToken();
+            if(requestListener!=null){
+                requestListener.onSearchComplete(new ArrayList<>(),null);
             }
             invalidateLastAutocompleteValues();
             return;
         }
 
-        //cancel the ongoing task
+        //cancel the ongoing task. A revalidation never cancels a newer request
         try{
-            if (completableFuture!=null){
+            if (completableFuture!=null && revalidation==null){
                 completableFuture.cancel(true);
             }
         }
         catch (Exception ex){
             Log.e(MultiSearch.class.getName(),ex.toString());
         }
+        final CancellationToken requestToken = revalidation == null ? renewCancellationToken() : renewCancellationToken(revalidation.requestToken);
+        if (requestToken == null){ //A newer request was started, the revalidation is not needed anymore
+            return;
+        }
+        final long requestId = autocompleteRequestId.incrementAndGet();
+        final DebouncePolicy requestDebouncePolicy = debouncePolicy;
+        final long requestStart = System.nanoTime();
+        final Map<AbstractProvider, List<JSONObject>> staleResponses = revalidation == null ? new ConcurrentHashMap<>() : null; //Stale responses used by the providers
+        final List<AbstractProvider> providerChain = new ArrayList<>(providers.values());
+        final PartialResults partialResults = new PartialResults(providerChain);
+        if (revalidation == null){
+            startDeadline(partialResults,requestToken,requestListener,requestStreamListener,requestDebouncePolicy,requestStart);
+        }
         completableFuture = CompletableFuture.supplyAsync(()->{
             List<JSONObject> providerSearchResult; //Arraylist which will hold single providers result
             ArrayList<AutocompleteResponseItem> finalResult = new ArrayList<>(); //Arraylist which will hold final results
             int optionalProviderResultCount=0; //Variable which will hold count of filtered results which was produced by providers where fallbackBreakpoint != false
             boolean callOnlyNonFallbackApi = false; //Variable which specifies if only those APIs should be called who's shouldIgnoreFallbackBreakPoint() == true
+            Map<AbstractProvider, SpeculativeSearch> speculativeSearches = new HashMap<>(); //Searches fired ahead of their turn in the chain
+            Map<AbstractProvider, CompletableFuture<List<AutocompleteResponseItem>>> streamedResults = new HashMap<>(); //Results streamed as soon as the eager searches complete
             try{
+                if (requestStreamListener != null){
+                    streamIgnoreFallbackProviders(providerChain,speculativeSearches,streamedResults,searchString,requestToken,staleResponses,requestStreamListener,partialResults);
+                }
                 if (searchString.length() < lastSearchString.length()){
                     invalidateLastAutocompleteValues();
                 }
-                for (AbstractProvider provider :providers.values()){
+                for (int providerIndex = 0; providerIndex < providerChain.size(); providerIndex++){
+                    requestToken.throwIfCancelled();
+                    AbstractProvider provider = providerChain.get(providerIndex);
                     boolean shouldApiBeCalled = true; //Variable which specifies if provider's api call should be made
 
                     //If provider's shouldIgnoreFallbackBreakPoint == false and only nonfallback API need to be called. then skip this provider
@@ -201,14 +721,8 @@ public class MultiSearch {
                     }
 
                     // Do not call api if the last call was done on another fallbacking API which is after, in the ordered list.
-                    if (isNewInputIsContainedInLastInput(searchString)){
-                        if (!isCurrentApiAfterTheLastCalledAPI(provider.getProviderConfig().getType()) && !provider.getProviderConfig().shouldIgnoreFallbackBreakPoint()){
-                            continue;
-                        }
-                        //Check if last called API is the same as this API and if returned 0 result. If yes then skip this API.
-                        else if (provider.getProviderConfig().getType() == lastApiCalled && lastResultCount==0){
-                            continue;
-                        }
+                    if (isSkippedForProgressingSearch(provider,searchString)){
+                        continue;
                     }
 
                     //If search string's length < provider.getProviderConfig().getMinInputLength() then do not call the API
@@ -221,22 +735,38 @@ public class MultiSearch {
                     //check if api should be called.
                     if (shouldApiBeCalled){
                         if (provider.getProviderConfig().shouldIgnoreFallbackBreakPoint()){//if Provider should ignore fallbackBreakpoint. Then add all the results without any checks and filter
-                            providerSearchResult = fetchProviderSearch(provider,searchString);
+                            providerSearchResult = fetchProviderSearch(providerChain,providerIndex,speculativeSearches,searchString,requestToken,staleResponses);
+                            requestToken.throwIfCancelled();
 
                             setLastSearchValues(searchString,provider.getProviderConfig().getType(),providerSearchResult.size());
-                            for(JSONObject result: providerSearchResult){
-                                finalResult.add(AutocompleteResponseItem.fromJSON(result,provider.getProviderConfig().getType(),searchString));
+                            CompletableFuture<List<AutocompleteResponseItem>> streamedResult = streamedResults.remove(provider);
+                            List<AutocompleteResponseItem> providerResult;
+                            if (streamedResult != null){ //Already converted and delivered to the stream listener
+                                providerResult = streamedResult.join();
+                            }
+                            else{
+                                providerResult = toAutocompleteItems(providerSearchResult,provider.getProviderConfig().getType(),searchString);
+                                notifyProviderResults(requestStreamListener,provider.getProviderConfig().getType(),providerResult,requestToken,partialResults);
                             }
+                            partialResults.complete(provider,providerResult);
+                            finalResult.addAll(providerResult);
                         }
                         else if (optionalProviderResultCount==0){ //Check if previous optional providers(i.e. ones with shouldIgnoreFallbackBreakPoint == false) produced any results. If not only then proceed with calling provider search method
-                            providerSearchResult = fetchProviderSearch(provider,searchString);
-                            providerSearchResult = scorable.scoreResults(providerSearchResult,searchString,provider.getProviderConfig().getFallbackBreakpoint()); // Score and sort the results
+                            providerSearchResult = narrowPreviousCandidates(provider,searchString,provider.getProviderConfig().getFallbackBreakpoint());
+                            if (providerSearchResult == null){ //The previous results can not answer this input
+                                providerSearchResult = fetchProviderSearch(providerChain,providerIndex,speculativeSearches,searchString,requestToken,staleResponses);
+                                requestToken.throwIfCancelled(); //Do not score the results of a stale request
+                                provider.recordSearchCandidates(searchString,providerSearchResult);
+                                providerSearchResult = scoreResults(provider,providerSearchResult,searchString,provider.getProviderConfig().getFallbackBreakpoint()); // Score and sort the results
+                            }
+                            requestToken.throwIfCancelled();
 
                             setLastSearchValues(searchString,provider.getProviderConfig().getType(),providerSearchResult.size());
+                            List<AutocompleteResponseItem> providerResult = new ArrayList<>();
                             for(JSONObject result: providerSearchResult){
                                 try{
                                     if (result.getDouble("score")<=provider.getProviderConfig().getFallbackBreakpoint()){ //Filter the results based on fallbackbreakpoint
-                                        finalResult.add(AutocompleteResponseItem.fromJSON(result,provider.getProviderConfig().getType(),searchString));
+                                        providerResult.add(AutocompleteResponseItem.fromJSON(result,provider.getProviderConfig().getType(),searchString));
                                         optionalProviderResultCount++; //Increase this counter
                                     }
                                 }
@@ -244,6 +774,9 @@ public class MultiSearch {
                                     Log.e(MultiSearch.class.getName(),ex.toString());
                                 }
                             }
+                            notifyProviderResults(requestStreamListener,provider.getProviderConfig().getType(),providerResult,requestToken,partialResults);
+                            partialResults.complete(provider,providerResult);
+                            finalResult.addAll(providerResult);
                         }
                     }
                 }
@@ -251,21 +784,115 @@ public class MultiSearch {
             catch (Exception ex){
                 throw new CompletionException(ex.getMessage(),ex.getCause());
             }
+            finally {
+                cancelSpeculativeSearches(speculativeSearches,requestId);
+            }
             return finalResult;
-        }).whenComplete((result, exception) ->{
-            if (listener!=null){
+        },networkExecutor).whenComplete((result, exception) ->{
+            //A newer request superseded this one or the results were delivered at the deadline
+            if (requestToken.isCancelled() || !partialResults.claimDelivery()){
+                return;
+            }
+            if (revalidation != null){
+                //The stale results were already delivered, only deliver fresh results which differ
+                if (exception==null && requestListener!=null && !isSameResult(revalidation.deliveredResult,result)){
+                    requestListener.onSearchComplete(result,null);
+                }
+                return;
+            }
+            if (exception==null){
+                requestDebouncePolicy.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart));
+            }
+            if (requestListener!=null){
                 if (exception!=null){
                     invalidateLastAutocompleteValues();
-                    listener.onSearchComplete(null,new WoosmapException(exception.getMessage()));
+                    requestListener.onSearchComplete(null,new WoosmapException(exception.getMessage()));
                 }
                 else{
-                    listener.onSearchComplete(result,null);
+                    requestListener.onSearchComplete(result,null);
                 }
             }
+            notifySearchDone(requestStreamListener,result,exception);
+            if (exception==null && !staleResponses.isEmpty()){
+                networkExecutor.execute(() -> revalidate(searchString,staleResponses,requestListener,new Revalidation(requestToken,result)));
+            }
         });
 
     }
 
+    /***
+     * Fetches fresh responses for the stale responses used by a request, bypassing the HTTP cache, and stores them in the response caches of the providers.
+     * If a response changed and no newer request was started, the request is run again from the fresh cached responses,
+     * and the listener is notified if its results changed
+     * @param searchString - the search string of the request
+     * @param staleResponses - the stale responses used by the request, by provider
+     * @param requestListener - the listener of the request
+     * @param revalidation - the request and the results it delivered
+     */
+    private void revalidate(String searchString, Map<AbstractProvider, List<JSONObject>> staleResponses, MultiSearchListener requestListener, Revalidation revalidation){
+        boolean changed = false;
+        for (Map.Entry<AbstractProvider, List<JSONObject>> staleResponse : staleResponses.entrySet()){
+            if (revalidation.requestToken.isCancelled()){
+                return; //A newer request was started and fetches what it needs
+            }
+            try{
+                List<JSONObject> freshResponse = staleResponse.getKey().revalidate(searchString);
+                changed |= !String.valueOf(freshResponse).equals(String.valueOf(staleResponse.getValue()));
+            }
+            catch (Exception ex){
+                Log.e(MultiSearch.class.getName(),ex.toString());
+            }
+        }
+        if (changed){
+            autocomplete(searchString,requestListener,null,revalidation);
+        }
+    }
+
+    /***
+     * Checks if two result lists hold the same items in the same order
+     */
+    private static boolean isSameResult(List<AutocompleteResponseItem> first, List<AutocompleteResponseItem> second){
+        if (first.size() != second.size()){
+            return false;
+        }
+        for (int index = 0; index < first.size(); index++){
+            AutocompleteResponseItem firstItem = first.get(index);
+            AutocompleteResponseItem secondItem = second.get(index);
+            if (firstItem.getApi() != secondItem.getApi()
+                    || !Objects.equals(firstItem.getId(), secondItem.getId())
+                    || !Objects.equals(firstItem.getDescription(), secondItem.getDescription())
+                    || !Objects.equals(String.valueOf(firstItem.getItem()), String.valueOf(secondItem.getItem()))){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /***
+     * Cancels the ongoing request, if any, and returns the cancellation token of a new request.
+     * Cancelling a request cancels the API calls of its providers and stops it before its next stage
+     * @return CancellationToken
+     */
+    private synchronized CancellationToken renewCancellationToken(){
+        if (cancellationToken != null){
+            cancellationToken.cancel();
+        }
+        cancellationToken = new CancellationToken();
+        return cancellationToken;
+    }
+
+    /***
+     * Returns the cancellation token of a new request, unless a request newer than the one of the expected token was started
+     * @param expectedToken - cancellation token of the latest request known by the caller
+     * @return CancellationToken or null if a newer request was started
+     */
+    private synchronized CancellationToken renewCancellationToken(CancellationToken expectedToken){
+        if (cancellationToken != expectedToken){
+            return null;
+        }
+        return renewCancellationToken();
+    }
+
     /***
      * Check if the new input prefixes with the last input.
      * If yes that means this is could be a progressing search (user is typing)
@@ -282,6 +909,24 @@ public class MultiSearch {
         return input.startsWith(lastSearchString);
     }
 
+    /***
+     * Check if the provider should be skipped because the user is typing and the last search was answered by another provider after this one
+     * or by this provider with no result
+     * @param provider - the provider
+     * @param input - the search string
+     * @return
+     */
+    private boolean isSkippedForProgressingSearch(AbstractProvider provider, String input){
+        if (!isNewInputIsContainedInLastInput(input)){
+            return false;
+        }
+        if (!isCurrentApiAfterTheLastCalledAPI(provider.getProviderConfig().getType()) && !provider.getProviderConfig().shouldIgnoreFallbackBreakPoint()){
+            return true;
+        }
+        //Check if last called API is the same as this API and if returned 0 result. If yes then skip this API.
+        return provider.getProviderConfig().getType() == lastApiCalled && lastResultCount==0;
+    }
+
     /***
      * Check if the passed API is called after last API called.
      * @param currentApi
@@ -322,24 +967,22 @@ public class MultiSearch {
     /**
      * autocomplete API implementation of the specified provider
      * @param type Type of the provider which needs to invoke <code>autocomplete</code> API
+     * @param searchString - the trimmed search string
+     * @param requestListener - the listener receiving the results of the request
+     * @param requestStreamListener - the stream listener receiving the results of the request
      */
-    private void autocomplete(SearchProviderType type){
+    private void autocomplete(SearchProviderType type, String searchString, MultiSearchListener requestListener, MultiSearchStreamListener requestStreamListener){
         if (!isProviderConfigPresent(type)){
             throw new IllegalStateException(context.getString(R.string.__wgs_api_config_not_found_error));
         }
 
-        //check if search string length is less than min input length
-        if (providers.get(type).getProviderConfig().getMinInputLength()>0 && searchString.length() < providers.get(type).getProviderConfig().getMinInputLength()){
-            if(listener!=null){
-                listener.onSearchComplete(new ArrayList<>(),null);
-            }
-            return;
-        }
-
-        //return if there is no input given
-        if (searchString.trim().equalsIgnoreCase("")){
-            if(listener!=null){
-                listener.onSearchComplete(new ArrayList<>(),null);
+        //return if there is no input given or if search string length is less than min input length.
+        //The ongoing request is cancelled so its results do not replace the empty ones
+        int minInputLength = providers.get(type).getProviderConfig().getMinInputLength();
+        if (searchString.trim().equalsIgnoreCase("") || (minInputLength>0 && searchString.length() < minInputLength)){
+            renewCancellationToken();
+            if(requestListener!=null){
+                requestListener.onSearchComplete(new ArrayList<>(),null);
             }
             return;
         }
@@ -353,15 +996,27 @@ public class MultiSearch {
         catch (Exception ex){
             Log.e(MultiSearch.class.getName(),ex.toString());
         }
+        final CancellationToken requestToken = renewCancellationToken();
+        final DebouncePolicy requestDebouncePolicy = debouncePolicy;
+        final long requestStart = System.nanoTime();
+        final AbstractProvider provider = providers.get(type);
+        final PartialResults partialResults = new PartialResults(Collections.singletonList(provider));
+        startDeadline(partialResults,requestToken,requestListener,requestStreamListener,requestDebouncePolicy,requestStart);
         completableFuture = CompletableFuture.supplyAsync(() ->{
             List<JSONObject> providerSearchResult;
             ArrayList<AutocompleteResponseItem> finalResult = new ArrayList<>();
 
             try{
-                AbstractProvider provider = providers.get(type);
 
-                providerSearchResult=fetchProviderSearch(provider,searchString);
-                providerSearchResult = scorable.scoreResults(providerSearchResult,searchString,provider.getProviderConfig().getFallbackBreakpoint());
+                float scoreCutoff = provider.getProviderConfig().shouldIgnoreFallbackBreakPoint() ? Float.POSITIVE_INFINITY : provider.getProviderConfig().getFallbackBreakpoint();
+                providerSearchResult = provider.getProviderConfig().shouldIgnoreFallbackBreakPoint() ? null : narrowPreviousCandidates(provider,searchString,scoreCutoff);
+                if (providerSearchResult == null){ //The previous results can not answer this input
+                    providerSearchResult=fetchProviderSearch(provider,searchString,requestToken,null);
+                    requestToken.throwIfCancelled(); //Do not score the results of a stale request
+                    provider.recordSearchCandidates(searchString,providerSearchResult);
+                    providerSearchResult = scoreResults(provider,providerSearchResult,searchString,scoreCutoff);
+                }
+                requestToken.throwIfCancelled();
                 //Filtering and scoring logic needs to be implemented here
                 for(JSONObject result: providerSearchResult){
                     try{
@@ -377,20 +1032,30 @@ public class MultiSearch {
                         Log.e(MultiSearch.class.getName(),ex.toString());
                     }
                 }
+                notifyProviderResults(requestStreamListener,type,finalResult,requestToken,partialResults);
+                partialResults.complete(provider,finalResult);
             }
             catch (Exception ex){
                 throw new CompletionException(ex);
             }
             return  finalResult;
-        }).whenComplete((result, exception) ->{
-            if (listener!=null){
+        },networkExecutor).whenComplete((result, exception) ->{
+            //A newer request superseded this one or the results were delivered at the deadline
+            if (requestToken.isCancelled() || !partialResults.claimDelivery()){
+                return;
+            }
+            if (exception==null){
+                requestDebouncePolicy.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart));
+            }
+            if (requestListener!=null){
                 if (exception!=null){
-                    listener.onSearchComplete(null,new WoosmapException(exception.getMessage()));
+                    requestListener.onSearchComplete(null,new WoosmapException(exception.getMessage()));
                 }
                 else{
-                    listener.onSearchComplete(result,null);
+                    requestListener.onSearchComplete(result,null);
                 }
             }
+            notifySearchDone(requestStreamListener,result,exception);
         });
     }
 
@@ -410,21 +1075,27 @@ public class MultiSearch {
      * @param searchString - the search string
      */
     public void autocompleteMulti(@NonNull String searchString){
-        this.searchString = searchString.trim();
-        if (this.debounceTime==0){
-            autocomplete();
-            return;
+        if (isProviderConfigCollectionEmpty()){
+            throw new IllegalStateException(context.getString(R.string.__wgs_no_config_provided_error));
         }
-        if (runnable!=null){
-            handler.removeCallbacks(runnable);
+        final String query = searchString.trim();
+        keystrokeScheduler.submit(() -> autocomplete(query,listener,streamListener),debouncePolicy);
+    }
+
+    /***
+     * Query the autocomplete APIs of the provider collection for each search string of a stream, like <code>autocompleteMulti(String)</code>.
+     * The returned publisher emits the result list of the latest search string: a new search string drops the results of the previous one.
+     * Search strings are debounced with the debounce policy, and only the latest result list is kept while the subscriber has no demand.
+     * The results are not delivered to the listeners attached to this object, but requests of the stream and of the autocomplete methods still cancel each other,
+     * so a <code>MultiSearch</code> object should serve a single search input
+     * @param searchStrings - the publisher of the search strings
+     * @return a publisher of result lists. Each subscription subscribes to <code>searchStrings</code>
+     */
+    public Publisher<List<AutocompleteResponseItem>> autocompleteMulti(@NonNull Publisher<String> searchStrings){
+        if (isProviderConfigCollectionEmpty()){
+            throw new IllegalStateException(context.getString(R.string.__wgs_no_config_provided_error));
         }
-        runnable = new Runnable() {
-            @Override
-            public void run() {
-                autocomplete();
-            }
-        };
-        handler.postDelayed(runnable,this.debounceTime);
+        return new AutocompletePublisher(searchStrings,(query, requestListener) -> autocomplete(query,requestListener,null),this::getDebouncePolicy);
     }
 
     /***
@@ -432,20 +1103,7 @@ public class MultiSearch {
      * @param searchString - the search string
      */
     public void autocompleteAddress( @NonNull String searchString){
-        this.searchString = searchString.trim();
-        if (this.debounceTime==0){
-            autocomplete(SearchProviderType.ADDRESS);
-            return;
-        }
-        if (runnable!=null){
-            handler.removeCallbacks(runnable);
-        }
-        runnable = new Runnable() {
-            @Override
-            public void run() {
-                autocomplete(SearchProviderType.ADDRESS);
-            }
-        };
+        autocompleteProvider(SearchProviderType.ADDRESS,searchString);
     }
 
     /***
@@ -453,20 +1111,7 @@ public class MultiSearch {
      * @param searchString - the search string
      */
     public void autocompletePlaces(@NonNull String searchString){
-        this.searchString = searchString.trim();
-        if (this.debounceTime==0){
-            autocomplete(SearchProviderType.PLACES);
-            return;
-        }
-        if (runnable!=null){
-            handler.removeCallbacks(runnable);
-        }
-        runnable = new Runnable() {
-            @Override
-            public void run() {
-                autocomplete(SearchProviderType.PLACES);
-            }
-        };
+        autocompleteProvider(SearchProviderType.PLACES,searchString);
     }
 
     /***
@@ -474,20 +1119,7 @@ public class MultiSearch {
      * @param searchString - the search string
      */
     public void autocompleteLocalities(@NonNull String searchString){
-        this.searchString = searchString.trim();
-        if (this.debounceTime==0){
-            autocomplete(SearchProviderType.LOCALITIES);
-            return;
-        }
-        if (runnable!=null){
-            handler.removeCallbacks(runnable);
-        }
-        runnable = new Runnable() {
-            @Override
-            public void run() {
-                autocomplete(SearchProviderType.LOCALITIES);
-            }
-        };
+        autocompleteProvider(SearchProviderType.LOCALITIES,searchString);
     }
 
     /***
@@ -495,20 +1127,20 @@ public class MultiSearch {
      * @param searchString - the search string
      */
     public void autocompleteStore(@NonNull String searchString){
-        this.searchString = searchString.trim();
-        if (this.debounceTime==0){
-            autocomplete(SearchProviderType.STORE);
-            return;
-        }
-        if (runnable!=null){
-            handler.removeCallbacks(runnable);
+        autocompleteProvider(SearchProviderType.STORE,searchString);
+    }
+
+    /***
+     * Schedules the autocomplete request of a single provider
+     * @param type - Type of the provider
+     * @param searchString - the search string
+     */
+    private void autocompleteProvider(SearchProviderType type, String searchString){
+        if (!isProviderConfigPresent(type)){
+            throw new IllegalStateException(context.getString(R.string.__wgs_api_config_not_found_error));
         }
-        runnable = new Runnable() {
-            @Override
-            public void run() {
-                autocomplete(SearchProviderType.STORE);
-            }
-        };
+        final String query = searchString.trim();
+        keystrokeScheduler.submit(() -> autocomplete(type,query,listener,streamListener),debouncePolicy);
     }
 
     /***
@@ -538,14 +1170,21 @@ public class MultiSearch {
             Log.e(MultiSearch.class.getName(),ex.toString());
         }
 
+        final CancellationToken requestToken = renewCancellationToken();
         completableFuture = CompletableFuture.supplyAsync(()->{
             try{
-                return providers.get(apiType).details(id);
+                AbstractProvider provider = providers.get(apiType);
+                requestToken.onCancel(provider::cancel);
+                return provider.details(id);
             }
             catch (Exception ex){
                 throw  new CompletionException(ex.getMessage(),ex.getCause());
             }
-        }).whenComplete((result, exception) ->{
+        },networkExecutor).whenComplete((result, exception) ->{
+            //A newer request superseded this one
+            if (requestToken.isCancelled()){
+                return;
+            }
             if (listener!=null){
                 if (exception!=null){
                     listener.onDetailComplete(null,new WoosmapException(exception.getMessage()));
@@ -633,14 +1272,346 @@ public class MultiSearch {
      * Call <code>autocomplete</code> API of the given provider for the given search string
      * @param provider - Provider to from whom results be fetched
      * @param searchString - the search string
+     * @param requestToken - cancellation token of the request
+     * @param staleResponses - receives the stale cached responses used, by provider. Null if stale responses must not be used
      * @return - List of <code>JSONObject</code>
      * @throws ExecutionException
      * @throws InterruptedException
      */
-    private List<JSONObject>fetchProviderSearch(AbstractProvider provider,String searchString) throws WoosmapException {
+    private List<JSONObject>fetchProviderSearch(AbstractProvider provider,String searchString,CancellationToken requestToken,Map<AbstractProvider, List<JSONObject>> staleResponses) throws WoosmapException {
         List<JSONObject> apiData;
-        apiData = provider.search(searchString);
+        requestToken.throwIfCancelled();
+        requestToken.onCancel(provider::cancel);
+        //The previous request cancelled its own calls, unless they were left running at its deadline
+        if (staleResponses == null){
+            return provider.searchForRequest(searchString,null);
+        }
+        AtomicBoolean staleResult = new AtomicBoolean(false);
+        apiData = provider.searchForRequest(searchString,staleResult);
+        if (staleResult.get()){
+            staleResponses.put(provider,apiData);
+        }
         return apiData;
     }
 
+    /***
+     * Returns the search result of the provider at <code>providerIndex</code> in the chain.
+     * In speculative mode, the searches of the next providers of the chain are fired first so they run while this one is awaited.
+     * The result of a search which was already fired speculatively is reused
+     * @param providerChain - the providers in the order they are called
+     * @param providerIndex - index of the provider in the chain
+     * @param speculativeSearches - searches fired ahead of their turn
+     * @param searchString - the search string
+     * @param requestToken - cancellation token of the request
+     * @param staleResponses - receives the stale cached responses used, by provider. Null if stale responses must not be used
+     * @return Returns a list of JSONObjects
+     * @throws WoosmapException - Throws an exception if any was raised
+     */
+    private List<JSONObject>fetchProviderSearch(List<AbstractProvider> providerChain, int providerIndex, Map<AbstractProvider, SpeculativeSearch> speculativeSearches, String searchString, CancellationToken requestToken, Map<AbstractProvider, List<JSONObject>> staleResponses) throws WoosmapException {
+        int lastSpeculativeIndex = Math.min(providerChain.size() - 1, providerIndex + speculativeProviderCount);
+        for (int nextIndex = providerIndex + 1; nextIndex <= lastSpeculativeIndex; nextIndex++){
+            AbstractProvider nextProvider = providerChain.get(nextIndex);
+            if (speculativeSearches.containsKey(nextProvider)
+                    || searchString.length() < nextProvider.getProviderConfig().getMinInputLength()
+                    || isSkippedForProgressingSearch(nextProvider,searchString)
+                    || (!nextProvider.getProviderConfig().shouldIgnoreFallbackBreakPoint() && nextProvider.getNarrowingCandidates(searchString) != null)){
+                continue;
+            }
+            SpeculativeSearch speculativeSearch = new SpeculativeSearch(nextProvider,searchString,requestToken,staleResponses);
+            speculativeSearches.put(nextProvider, speculativeSearch);
+            networkExecutor.execute(speculativeSearch::run);
+        }
+
+        SpeculativeSearch speculativeSearch = speculativeSearches.remove(providerChain.get(providerIndex));
+        if (speculativeSearch == null){
+            return fetchProviderSearch(providerChain.get(providerIndex),searchString,requestToken,staleResponses);
+        }
+        return speculativeSearch.get();
+    }
+
+    /***
+     * Fires the searches of the providers which ignore their <code>fallbackBreakpoint</code> right away, since the fallback chain always calls them.
+     * Their results are delivered to the stream listener as soon as they complete, without waiting for the providers before them
+     * @param providerChain - the providers in the order they are called
+     * @param speculativeSearches - searches fired ahead of their turn
+     * @param streamedResults - converted results of the eager searches, completed once delivered to the stream listener
+     * @param searchString - the search string
+     * @param requestToken - cancellation token of the request
+     * @param staleResponses - receives the stale cached responses used, by provider. Null if stale responses must not be used
+     * @param requestStreamListener - the stream listener
+     * @param partialResults - results of the providers which finished
+     */
+    private void streamIgnoreFallbackProviders(List<AbstractProvider> providerChain, Map<AbstractProvider, SpeculativeSearch> speculativeSearches,
+                                               Map<AbstractProvider, CompletableFuture<List<AutocompleteResponseItem>>> streamedResults,
+                                               String searchString, CancellationToken requestToken, Map<AbstractProvider, List<JSONObject>> staleResponses, MultiSearchStreamListener requestStreamListener,
+                                               PartialResults partialResults){
+        for (AbstractProvider provider : providerChain){
+            ProviderConfig providerConfig = provider.getProviderConfig();
+            if (!providerConfig.shouldIgnoreFallbackBreakPoint() || searchString.length() < providerConfig.getMinInputLength()){
+                continue;
+            }
+            SpeculativeSearch eagerSearch = new SpeculativeSearch(provider,searchString,requestToken,staleResponses);
+            speculativeSearches.put(provider, eagerSearch);
+            streamedResults.put(provider, eagerSearch.result.thenApply(searchResult -> {
+                List<AutocompleteResponseItem> providerResult = toAutocompleteItems(searchResult,providerConfig.getType(),searchString);
+                notifyProviderResults(requestStreamListener,providerConfig.getType(),providerResult,requestToken,partialResults);
+                partialResults.complete(provider,providerResult);
+                return providerResult;
+            }));
+            networkExecutor.execute(eagerSearch::run);
+        }
+    }
+
+    /***
+     * Converts the results of a provider which ignores its <code>fallbackBreakpoint</code>
+     */
+    private static List<AutocompleteResponseItem> toAutocompleteItems(List<JSONObject> providerSearchResult, SearchProviderType providerType, String searchString){
+        List<AutocompleteResponseItem> providerResult = new ArrayList<>();
+        for (JSONObject result : providerSearchResult){
+            providerResult.add(AutocompleteResponseItem.fromJSON(result,providerType,searchString));
+        }
+        return providerResult;
+    }
+
+    /***
+     * Delivers the results of a provider to the stream listener, unless they are empty, the request was cancelled or its results were already delivered
+     */
+    private static void notifyProviderResults(MultiSearchStreamListener requestStreamListener, SearchProviderType providerType,
+                                              List<AutocompleteResponseItem> providerResult, CancellationToken requestToken, PartialResults partialResults){
+        if (requestStreamListener == null || providerResult.isEmpty() || requestToken.isCancelled()){
+            return;
+        }
+        partialResults.runBeforeDelivery(() -> {
+            try{
+                requestStreamListener.onProviderResults(providerType, providerResult);
+            }
+            catch (Exception ex){
+                Log.e(MultiSearch.class.getName(),ex.toString());
+            }
+        });
+    }
+
+    /***
+     * Signals the end of the request to the stream listener
+     */
+    private static void notifySearchDone(MultiSearchStreamListener requestStreamListener, List<AutocompleteResponseItem> result, Throwable exception){
+        if (requestStreamListener == null){
+            return;
+        }
+        if (exception!=null){
+            requestStreamListener.onSearchDone(null,new WoosmapException(exception.getMessage()));
+        }
+        else{
+            requestStreamListener.onSearchDone(result,null);
+        }
+    }
+
+    /***
+     * Schedules the delivery of the results available when the latency budget is spent, if a budget is set
+     * @param partialResults - results of the providers which finished
+     * @param requestToken - cancellation token of the request
+     * @param requestListener - the listener
+     * @param requestStreamListener - the stream listener
+     * @param requestDebouncePolicy - the debounce policy of the request
+     * @param requestStart - start of the request, in ns
+     */
+    private void startDeadline(PartialResults partialResults, CancellationToken requestToken, MultiSearchListener requestListener,
+                               MultiSearchStreamListener requestStreamListener, DebouncePolicy requestDebouncePolicy, long requestStart){
+        if (latencyBudget <= 0){
+            return;
+        }
+        final boolean cancelProviders = cancelProvidersAtDeadline;
+        partialResults.deadline = getDeadlineExecutor().schedule(() -> {
+            if (requestToken.isCancelled() || !partialResults.claimDelivery()){
+                return;
+            }
+            List<AutocompleteResponseItem> bestResult = partialResults.getResults();
+            requestDebouncePolicy.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart));
+            if (cancelProviders){
+                requestToken.cancel();
+            }
+            else{
+                //The next requests must not cancel the API calls left running
+                requestToken.detach();
+            }
+            if (requestListener!=null){
+                requestListener.onSearchComplete(bestResult,null);
+            }
+            notifySearchDone(requestStreamListener,bestResult,null);
+        }, latencyBudget, TimeUnit.MILLISECONDS);
+    }
+
+    /***
+     * Returns the single daemon thread shared by the deadlines of all the requests
+     * @return ScheduledExecutorService
+     */
+    private static synchronized ScheduledExecutorService getDeadlineExecutor(){
+        if (deadlineExecutor == null){
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "multisearch-deadline");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            deadlineExecutor = executor;
+        }
+        return deadlineExecutor;
+    }
+
+    /***
+     * Cancels the speculative searches whose results were not needed. The searches which did not start yet never start.
+     * Running API calls are only cancelled if no newer autocomplete request was started, which may already be using the same providers
+     * @param speculativeSearches - the unused speculative searches
+     * @param requestId - id of the autocomplete request which fired them
+     */
+    private void cancelSpeculativeSearches(Map<AbstractProvider, SpeculativeSearch> speculativeSearches, long requestId){
+        for (Map.Entry<AbstractProvider, SpeculativeSearch> speculativeSearch : speculativeSearches.entrySet()){
+            if (speculativeSearch.getValue().discard() && requestId == autocompleteRequestId.get()){
+                speculativeSearch.getKey().cancel();
+            }
+        }
+        speculativeSearches.clear();
+    }
+
+    /***
+     * Results of the providers of a request which finished, kept so they can be delivered when the latency budget is spent.
+     * The results of the request are delivered once, either at the deadline or when the request completes.
+     * Provider results are streamed under the same lock as the delivery claim, so none is streamed after the delivery
+     */
+    private static class PartialResults {
+        private final List<AbstractProvider> providerChain;
+        private final Map<AbstractProvider, List<AutocompleteResponseItem>> completedResults = new ConcurrentHashMap<>();
+        private boolean delivered = false;
+        private volatile ScheduledFuture<?> deadline;
+
+        private PartialResults(List<AbstractProvider> providerChain){
+            this.providerChain = providerChain;
+        }
+
+        /***
+         * Keeps the results of a provider which finished
+         */
+        private void complete(AbstractProvider provider, List<AutocompleteResponseItem> providerResult){
+            completedResults.put(provider, providerResult);
+        }
+
+        /***
+         * Returns the results of the providers which finished, in the order of the chain
+         */
+        private List<AutocompleteResponseItem> getResults(){
+            List<AutocompleteResponseItem> results = new ArrayList<>();
+            for (AbstractProvider provider : providerChain){
+                List<AutocompleteResponseItem> providerResult = completedResults.get(provider);
+                if (providerResult != null){
+                    results.addAll(providerResult);
+                }
+            }
+            return results;
+        }
+
+        /***
+         * Marks the results as delivered and cancels the deadline. Waits for the provider results being streamed
+         * @return false if the results were already delivered
+         */
+        private boolean claimDelivery(){
+            synchronized (this){
+                if (delivered){
+                    return false;
+                }
+                delivered = true;
+            }
+            ScheduledFuture<?> scheduledDeadline = deadline;
+            if (scheduledDeadline != null){
+                scheduledDeadline.cancel(false);
+            }
+            return true;
+        }
+
+        /***
+         * Runs the notification of provider results unless the results of the request were delivered
+         */
+        private synchronized void runBeforeDelivery(Runnable notification){
+            if (!delivered){
+                notification.run();
+            }
+        }
+    }
+
+    /***
+     * A request delivered with stale cached responses, which is run again with fresh responses
+     */
+    private static class Revalidation {
+        private final CancellationToken requestToken;
+        private final List<AutocompleteResponseItem> deliveredResult;
+
+        private Revalidation(CancellationToken requestToken, List<AutocompleteResponseItem> deliveredResult){
+            this.requestToken = requestToken;
+            this.deliveredResult = deliveredResult;
+        }
+    }
+
+    /***
+     * A provider search fired ahead of its turn in the fallback chain.
+     * It runs once, either on the network executor or on the thread which needs its result if it has not started yet,
+     * so a request waiting for it never waits for a free thread of the executor
+     */
+    private class SpeculativeSearch {
+        private final AbstractProvider provider;
+        private final String searchString;
+        private final CancellationToken requestToken;
+        private final Map<AbstractProvider, List<JSONObject>> staleResponses;
+        private final AtomicBoolean started = new AtomicBoolean(false);
+        private final CompletableFuture<List<JSONObject>> result = new CompletableFuture<>();
+
+        private SpeculativeSearch(AbstractProvider provider, String searchString, CancellationToken requestToken, Map<AbstractProvider, List<JSONObject>> staleResponses){
+            this.provider = provider;
+            this.searchString = searchString;
+            this.requestToken = requestToken;
+            this.staleResponses = staleResponses;
+        }
+
+        /***
+         * Runs the search if it has not started yet
+         */
+        private void run(){
+            if (!started.compareAndSet(false, true)){
+                return;
+            }
+            try{
+                result.complete(fetchProviderSearch(provider,searchString,requestToken,staleResponses));
+            }
+            catch (Exception ex){
+                result.completeExceptionally(ex);
+            }
+        }
+
+        /***
+         * Prevents the search from starting if it has not started yet
+         * @return true if the search is still running
+         */
+        private boolean discard(){
+            if (started.compareAndSet(false, true)){
+                result.cancel(false);
+            }
+            return !result.isDone();
+        }
+
+        /***
+         * Runs the search on the calling thread if it has not started yet, then waits for its result
+         * @return Returns a list of JSONObjects
+         * @throws WoosmapException - Throws an exception if any was raised
+         */
+        private List<JSONObject> get() throws WoosmapException {
+            run();
+            try{
+                return result.join();
+            }
+            catch (CompletionException ex){
+                if (ex.getCause() instanceof WoosmapException){
+                    throw (WoosmapException) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+    }
 }
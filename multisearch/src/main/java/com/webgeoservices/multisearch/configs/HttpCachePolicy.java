@@ -0,0 +1,131 @@
+package com.webgeoservices.multisearch.configs;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+
+/***
+ * HttpCachePolicy configures the HTTP cache shared by the providers: its size and the endpoints whose responses are cached.
+ * Each endpoint is identified by its host and path prefix, e.g. <code>api.woosmap.com/localities/autocomplete</code>, and has a maximum age.
+ * The maximum age is used when the server does not send caching headers. Headers sent by the server always take precedence.
+ * An endpoint with a maximum age of 0 is never cached. Endpoints which are not listed follow the headers sent by the server.
+ * Cached responses with an <code>ETag</code> or <code>Last-Modified</code> header are revalidated with conditional requests once expired
+ */
+public class HttpCachePolicy {
+    /***
+     * Default size of the HTTP cache, in bytes
+     */
+    public static final long DEFAULT_CACHE_SIZE = 5 * 1024 * 1024;
+
+    private final long cacheSize;
+    private final Map<String, Long> endpointMaxAges;
+
+    /***
+     * Returns the maximum size of the HTTP cache
+     * @return the size in bytes
+     */
+    public long getCacheSize() {
+        return cacheSize;
+    }
+
+    /***
+     * Returns the maximum age of the responses of the endpoints, by host and path prefix
+     * @return the maximum ages in seconds
+     */
+    public Map<String, Long> getEndpointMaxAges() {
+        return endpointMaxAges;
+    }
+
+    /***
+     * Returns the maximum age of the responses of an URL when the server does not send caching headers.
+     * The endpoint with the longest matching prefix is used
+     * @param url - the request URL
+     * @return the maximum age in seconds, 0 if the responses must not be cached or -1 if the endpoint is not listed
+     */
+    public long getMaxAge(HttpUrl url){
+        String endpoint = url.host() + url.encodedPath();
+        String matchingPrefix = null;
+        for (String prefix : endpointMaxAges.keySet()){
+            if (endpoint.startsWith(prefix) && (matchingPrefix == null || prefix.length() > matchingPrefix.length())){
+                matchingPrefix = prefix;
+            }
+        }
+        return matchingPrefix == null ? -1 : endpointMaxAges.get(matchingPrefix);
+    }
+
+    /***
+     * Private constructure used by the <code>Builder</code> class to construct HttpCachePolicy object
+     * @param builder
+     */
+    private HttpCachePolicy(Builder builder){
+        this.cacheSize = builder.cacheSize;
+        this.endpointMaxAges = new LinkedHashMap<>(builder.endpointMaxAges);
+    }
+
+    /***
+     * A builder class which is used to create HttpCachePolicy object which will be passed to MultiSearch API.
+     * It starts with the default policy:
+     * Woosmap autocomplete endpoints are cached for 10 minutes, Woosmap details endpoints for 1 day
+     * and the Google Places endpoints are not cached, since the Google Places terms restrict caching
+     */
+    public static class Builder{
+        private long cacheSize = DEFAULT_CACHE_SIZE;
+        private final Map<String, Long> endpointMaxAges = new LinkedHashMap<>();
+
+        /***
+         * Public constructor
+         */
+        public Builder(){
+            long autocompleteMaxAge = TimeUnit.MINUTES.toSeconds(10);
+            long detailsMaxAge = TimeUnit.DAYS.toSeconds(1);
+            endpointMaxAges.put("api.woosmap.com/localities/autocomplete", autocompleteMaxAge);
+            endpointMaxAges.put("api.woosmap.com/address/autocomplete", autocompleteMaxAge);
+            endpointMaxAges.put("api.woosmap.com/stores/autocomplete", autocompleteMaxAge);
+            endpointMaxAges.put("api.woosmap.com/localities/details", detailsMaxAge);
+            endpointMaxAges.put("api.woosmap.com/address/details", detailsMaxAge);
+            endpointMaxAges.put("api.woosmap.com/stores/search", detailsMaxAge);
+            endpointMaxAges.put("maps.googleapis.com/maps/api/place/autocomplete", 0L);
+            endpointMaxAges.put("maps.googleapis.com/maps/api/place/details", 0L);
+        }
+
+        /***
+         * Maximum size of the HTTP cache. Least recently used responses are evicted when it is full
+         * @param cacheSize - the size in bytes
+         * @return
+         */
+        public Builder cacheSize(long cacheSize) {
+            if (cacheSize <= 0){
+                throw new RuntimeException("cacheSize must be greater than 0");
+            }
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /***
+         * Maximum age of the responses of an endpoint when the server does not send caching headers. Replaces the value of the default policy, if any
+         * @param endpoint - host and path prefix of the endpoint, e.g. <code>api.woosmap.com/localities/autocomplete</code>
+         * @param maxAge - the maximum age in seconds. 0 prevents the responses of the endpoint from being cached
+         * @return
+         */
+        public Builder endpoint(String endpoint, long maxAge) {
+            if (endpoint == null || endpoint.isEmpty()){
+                throw new RuntimeException("endpoint cannot be null or empty");
+            }
+            if (maxAge < 0){
+                throw new RuntimeException("maxAge must be greater than or equal to 0");
+            }
+            endpointMaxAges.put(endpoint, maxAge);
+            return this;
+        }
+
+        /***
+         * Builds the HttpCachePolicy object
+         * @return
+         */
+        public HttpCachePolicy build(){
+            return new HttpCachePolicy(this);
+        }
+    }
+}
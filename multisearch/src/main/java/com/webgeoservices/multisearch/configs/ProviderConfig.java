@@ -2,9 +2,14 @@ package com.webgeoservices.multisearch.configs;
 
 
 import com.webgeoservices.multisearch.SearchProviderType;
+import com.webgeoservices.multisearch.scorers.ScoringConfiguration;
+import com.webgeoservices.multisearch.utils.ResponseCache;
 import com.webgeoservices.multisearch.utils.SearchUtil;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /***
  * ProviderConfig provides a way configure options to MultiSearch API
@@ -16,6 +21,16 @@ public class ProviderConfig {
     private int minInputLength=0;
     private ConfigParams configParams;
     private boolean ignoreFallbackBreakpoint=false;
+    private int resultLimit=0;
+    private int pageSize=0;
+    private float hedgePercentile=0;
+    private int responseCacheSize=ResponseCache.DEFAULT_MAX_ENTRIES;
+    private long responseCacheTtl=ResponseCache.DEFAULT_TTL;
+    private long responseCacheStaleTtl=0;
+    private long detailsCacheTtl=-1;
+    private int negativeCacheSize=0;
+    private boolean persistNegativeCache=false;
+    private final ScoringConfiguration scoringConfiguration;
     /**
      * Returns the type of the provider. Pssible values are <code>LOCALITIES</code>, <code>ADDRESS</code>, <code>STORE</code> and <code>PLACES</code>
      * @return
@@ -78,6 +93,95 @@ public class ProviderConfig {
         return ignoreFallbackBreakpoint;
     }
 
+    /***
+     * Returns the maximum number of scored results kept for the provider. 0 means all the results are kept
+     * @return
+     */
+    public int getResultLimit() {
+        return resultLimit;
+    }
+
+    /***
+     * Returns the maximum number of predictions returned by the provider's autocomplete API. 0 means the page size is unknown
+     * @return
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /***
+     * Returns the percentile of the observed <code>search</code> latencies after which a duplicate API call is issued. 0 means calls are not hedged
+     * @return
+     */
+    public float getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    /***
+     * Returns the maximum number of <code>search</code> responses cached by the provider. 0 means responses are not cached
+     * @return
+     */
+    public int getResponseCacheSize() {
+        return responseCacheSize;
+    }
+
+    /***
+     * Returns the time a cached <code>search</code> response is used, in ms
+     * @return
+     */
+    public long getResponseCacheTtl() {
+        return responseCacheTtl;
+    }
+
+    /***
+     * Returns the time an expired <code>search</code> response is still used by <code>autocompleteMulti</code> while it is revalidated, in ms.
+     * 0 means expired responses are not used
+     * @return
+     */
+    public long getResponseCacheStaleTtl() {
+        return responseCacheStaleTtl;
+    }
+
+    /***
+     * Returns the time a cached details payload is used, in ms. 0 means details are not cached
+     * If no value is provided then the default value based on the provider type is returned:
+     * <code>places</code> - 0, since the Google Places terms restrict the caching of place details
+     * <code>store</code>, <code>localities</code> and <code>address</code> - 7 days
+     * @return
+     */
+    public long getDetailsCacheTtl() {
+        if (detailsCacheTtl >= 0){
+            return detailsCacheTtl;
+        }
+        return type == SearchProviderType.PLACES ? 0 : TimeUnit.DAYS.toMillis(7);
+    }
+
+    /***
+     * Returns the maximum number of search strings without result remembered by the provider, so the inputs extending them are answered without calling the API.
+     * 0 (the default) means the API is always called
+     * @return
+     */
+    public int getNegativeCacheSize() {
+        return negativeCacheSize;
+    }
+
+    /***
+     * Returns true if the search strings without result are persisted in the cache directory of the application, so they are reused by the next sessions
+     * @return
+     */
+    public boolean shouldPersistNegativeCache() {
+        return persistNegativeCache;
+    }
+
+    /***
+     * Returns the configuration used to score the results of the provider.
+     * Its threshold is the provider's <code>fallbackBreakpoint</code>
+     * @return <code>ScoringConfiguration</code> object
+     */
+    public ScoringConfiguration getScoringConfiguration() {
+        return scoringConfiguration;
+    }
+
     /***
      * Private constructure used by the <code>Builder</code> class to construct ProviderConfig object
      * @param builder
@@ -95,6 +199,15 @@ public class ProviderConfig {
         this.ignoreFallbackBreakpoint = builder.ignoreFallbackBreakpoint;
         this.fallbackBreakpoint = builder.fallbackBreakpoint;
         this.minInputLength = builder.minInputLength;
+        this.resultLimit = builder.resultLimit;
+        this.pageSize = builder.pageSize;
+        this.hedgePercentile = builder.hedgePercentile;
+        this.responseCacheSize = builder.responseCacheSize;
+        this.responseCacheTtl = builder.responseCacheTtl;
+        this.responseCacheStaleTtl = builder.responseCacheStaleTtl;
+        this.detailsCacheTtl = builder.detailsCacheTtl;
+        this.negativeCacheSize = builder.negativeCacheSize;
+        this.persistNegativeCache = builder.persistNegativeCache;
 
         if (builder.searchType!=null){
             configParams.setSearchType(builder.searchType.toArray(new String[builder.searchType.size()]));
@@ -115,6 +228,13 @@ public class ProviderConfig {
         configParams.setData(builder.data);
         configParams.setExtended(builder.extended);
         configParams.setFields(builder.fields);
+
+        ScoringConfiguration.Builder scoringBuilder = new ScoringConfiguration.Builder()
+                .threshold(getFallbackBreakpoint());
+        for (Map.Entry<String, Float> scoringKey : builder.scoringKeys.entrySet()){
+            scoringBuilder.key(scoringKey.getKey(), scoringKey.getValue());
+        }
+        this.scoringConfiguration = scoringBuilder.build();
     }
 
     /***
@@ -126,6 +246,15 @@ public class ProviderConfig {
         private float fallbackBreakpoint=-1;
         private int minInputLength=0;
         private boolean ignoreFallbackBreakpoint=false;
+        private int resultLimit=0;
+        private int pageSize=0;
+        private float hedgePercentile=0;
+        private int responseCacheSize=ResponseCache.DEFAULT_MAX_ENTRIES;
+        private long responseCacheTtl=ResponseCache.DEFAULT_TTL;
+        private long responseCacheStaleTtl=0;
+        private long detailsCacheTtl=-1;
+        private int negativeCacheSize=0;
+        private boolean persistNegativeCache=false;
         private ArrayList<String> searchType=null;
         private String language=null;
         private ArrayList<String> query;
@@ -133,6 +262,7 @@ public class ProviderConfig {
         private Data data;
         private String extended ="";
         private String fields ="";
+        private final Map<String, Float> scoringKeys = new LinkedHashMap<>();
 
         /***
          * Public constructor
@@ -192,6 +322,139 @@ public class ProviderConfig {
             return this;
         }
 
+        /***
+         * Maximum number of results kept for the provider after scoring. Only the best results are scored and sorted,
+         * which is faster than scoring all of them when the provider returns many predictions.
+         * 0 (the default) keeps all the results
+         * @param resultLimit - the result limit
+         * @return
+         */
+        public Builder resultLimit(int resultLimit) {
+            if (resultLimit < 0){
+                throw new RuntimeException("resultLimit must be greater than or equal to 0");
+            }
+            this.resultLimit = resultLimit;
+            return this;
+        }
+
+        /***
+         * Maximum number of predictions returned by the provider's autocomplete API.
+         * When a response has fewer predictions, it holds all the matches of its input, so the results of a longer input starting with it
+         * are searched locally in that response instead of calling the API, until the response cache time to live elapses.
+         * 0 (the default) means the page size is unknown and every input calls the API
+         * @param pageSize - the page size
+         * @return
+         */
+        public Builder pageSize(int pageSize) {
+            if (pageSize < 0){
+                throw new RuntimeException("pageSize must be greater than or equal to 0");
+            }
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /***
+         * Enables hedged <code>search</code> calls. If a call has not returned after the given percentile of the provider's latest latencies,
+         * a duplicate call is issued and the first response is used. For example 0.95 hedges the calls slower than 95% of the previous ones.
+         * Hedging starts once a few latencies were recorded. 0 (the default) disables hedging
+         * @param hedgePercentile - the percentile, between 0 and 1
+         * @return
+         */
+        public Builder hedgePercentile(float hedgePercentile) {
+            if (hedgePercentile < 0 || hedgePercentile >= 1){
+                throw new RuntimeException("hedgePercentile must be greater than or equal to 0 and lower than 1");
+            }
+            this.hedgePercentile = hedgePercentile;
+            return this;
+        }
+
+        /***
+         * Maximum number of <code>search</code> responses cached by the provider. When full, the least recently used response is evicted.
+         * Defaults to 64. 0 disables the cache
+         * @param responseCacheSize - the number of cached responses
+         * @return
+         */
+        public Builder responseCacheSize(int responseCacheSize) {
+            if (responseCacheSize < 0){
+                throw new RuntimeException("responseCacheSize must be greater than or equal to 0");
+            }
+            this.responseCacheSize = responseCacheSize;
+            return this;
+        }
+
+        /***
+         * Time a cached <code>search</code> response is used before calling the API again. Defaults to 10 minutes
+         * @param responseCacheTtl - the time to live in ms
+         * @return
+         */
+        public Builder responseCacheTtl(long responseCacheTtl) {
+            if (responseCacheTtl <= 0){
+                throw new RuntimeException("responseCacheTtl must be greater than 0");
+            }
+            this.responseCacheTtl = responseCacheTtl;
+            return this;
+        }
+
+        /***
+         * Enables stale-while-revalidate for <code>autocompleteMulti</code>: during this time after a cached <code>search</code> response expired,
+         * it is still used so the results are delivered immediately, then the request is run again in the background with fresh responses
+         * and the listener receives the new results if they differ. 0 (the default) disables it
+         * @param responseCacheStaleTtl - the stale time in ms
+         * @return
+         */
+        public Builder responseCacheStaleTtl(long responseCacheStaleTtl) {
+            if (responseCacheStaleTtl < 0){
+                throw new RuntimeException("responseCacheStaleTtl must be greater than or equal to 0");
+            }
+            this.responseCacheStaleTtl = responseCacheStaleTtl;
+            return this;
+        }
+
+        /***
+         * Time a details payload is kept in the persistent details cache, in ms. 0 disables the details cache for the provider.
+         * Payloads are dropped from the cache after 30 days whatever their time to live.
+         * If no value is provided then the provider will keep the default value based on the provider type:
+         * <code>places</code> - 0
+         * <code>store</code>, <code>localities</code> and <code>address</code> - 7 days
+         * @param detailsCacheTtl - the time to live in ms
+         * @return
+         */
+        public Builder detailsCacheTtl(long detailsCacheTtl) {
+            if (detailsCacheTtl < 0){
+                throw new RuntimeException("detailsCacheTtl must be greater than or equal to 0");
+            }
+            this.detailsCacheTtl = detailsCacheTtl;
+            return this;
+        }
+
+        /***
+         * Maximum number of search strings without result remembered by the provider. An input extending one of them is answered with no result without calling the API,
+         * which only holds for strictly prefix based APIs. When full, the oldest search string is evicted. They are remembered for 1 day.
+         * Defaults to 0, which disables the negative cache: the Woosmap APIs tolerate typos and Google Places predictions are not prefix based,
+         * so an input extending a search string without result may have results. Only enable it for configurations whose results strictly match the input prefix.
+         * <code>NegativePrefixCache.DEFAULT_MAX_PREFIXES</code> is a reasonable size
+         * @param negativeCacheSize - the number of search strings
+         * @return
+         */
+        public Builder negativeCacheSize(int negativeCacheSize) {
+            if (negativeCacheSize < 0){
+                throw new RuntimeException("negativeCacheSize must be greater than or equal to 0");
+            }
+            this.negativeCacheSize = negativeCacheSize;
+            return this;
+        }
+
+        /***
+         * Persists the search strings without result in the cache directory of the application, so they are reused by the next sessions.
+         * Defaults to false
+         * @param persistNegativeCache - true to persist the negative cache
+         * @return
+         */
+        public Builder persistNegativeCache(boolean persistNegativeCache) {
+            this.persistNegativeCache = persistNegativeCache;
+            return this;
+        }
+
         /***
          * The types of suggestions to return. Several types are available
          * Some possible values are <code>locality</code>, <code>postal_code</code>, <code>address</code>, <code>admin_level</code>, <code>country</code>
@@ -280,6 +543,21 @@ public class ProviderConfig {
             return this;
         }
 
+        /***
+         * Adds a field of the API results used to score them. The <code>description</code> field is scored if no field is added.
+         * Providers having the same scoring fields and matching options share the same scorer
+         * @param name - the field name. Nested fields can be separated by a dot
+         * @param weight - the weight of the field. Must be greater than 0
+         * @return
+         */
+        public Builder scoringKey(String name, float weight){
+            if (weight <= 0){
+                throw new RuntimeException("Scoring key weight must be greater than 0");
+            }
+            this.scoringKeys.put(name, weight);
+            return this;
+        }
+
         /***
          * Builds and returns <code>ProviderConfig</code> object based on the provided parameters
          * @return the ProviderConfig object
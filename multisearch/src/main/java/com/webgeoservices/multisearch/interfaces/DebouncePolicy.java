@@ -0,0 +1,22 @@
+package com.webgeoservices.multisearch.interfaces;
+
+/***
+ * Interface which can be used to choose how long <code>MultiSearch</code> waits after a keystroke before running the autocomplete request.
+ * Known implementations are <code>FixedDebouncePolicy</code> and <code>AdaptiveDebouncePolicy</code>
+ */
+public interface DebouncePolicy {
+    /***
+     * Method called for every keystroke. Returns how long to wait before running the autocomplete request of this keystroke.
+     * The request is dropped if another keystroke happens before the delay is over
+     * @param keystrokeTime - time of the keystroke in ms, from a monotonic clock
+     * @return the delay in ms. 0 runs the request right away
+     */
+    long nextDelay(long keystrokeTime);
+
+    /***
+     * Method called when an autocomplete request completes
+     * @param latency - time taken by the request in ms
+     */
+    default void recordLatency(long latency){
+    }
+}
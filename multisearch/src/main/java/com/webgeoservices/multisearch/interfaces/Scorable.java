@@ -5,7 +5,7 @@ import java.util.List;
 
 /***
  * Interface which can be used to implement scoring of the search results
- * Known implementation is <code>FuseScorer</code>
+ * Known implementations are <code>BitapScorer</code> and <code>FuseScorer</code>
  */
 public interface Scorable {
     /***
@@ -16,4 +16,11 @@ public interface Scorable {
      * @return List of JSONObject (s) which are scored
      */
     List<JSONObject> scoreResults(List<JSONObject> data,String searchString,float fallbackBreakpoint);
+
+    /***
+     * Performs the expensive initialization of the scorer ahead of the first <code>scoreResults</code> call.
+     * Called by <code>MultiSearch</code> on a background thread. Does nothing by default
+     */
+    default void prewarm(){
+    }
 }
@@ -0,0 +1,13 @@
+package com.webgeoservices.multisearch.interfaces;
+
+/***
+ * Interface which creates <code>Scorable</code> objects.
+ * Used by <code>ScorerPool</code> to create one scorer per worker thread
+ */
+public interface ScorableFactory {
+    /***
+     * Creates a new <code>Scorable</code> object
+     * @return Scorable
+     */
+    Scorable create();
+}
@@ -0,0 +1,23 @@
+package com.webgeoservices.multisearch.interfaces;
+
+import org.json.JSONObject;
+
+import java.util.List;
+
+/***
+ * Interface which can be used to implement scoring of the search results when only the best results are needed.
+ * Implementations can skip the candidates which cannot beat the current best results instead of scoring and sorting all of them
+ * Known implementation is <code>BitapScorer</code>
+ */
+public interface TopKScorable extends Scorable {
+    /***
+     * Method to accept search results. Score them based on the search string and return at most <code>limit</code> best results
+     * @param data - List of JSONObject (s) which needs to be scored, sorted
+     * @param searchString - Searh string based on which the scoring should take place
+     * @param fallbackBreakpoint - At what point does the match algorithm give up
+     * @param limit - maximum number of results to return
+     * @param scoreCutoff - results having a score greater than this value are not returned
+     * @return List of at most <code>limit</code> JSONObject (s) which are scored and sorted
+     */
+    List<JSONObject> scoreResults(List<JSONObject> data, String searchString, float fallbackBreakpoint, int limit, float scoreCutoff);
+}
@@ -0,0 +1,29 @@
+package com.webgeoservices.multisearch.listeners;
+
+import com.webgeoservices.multisearch.SearchProviderType;
+import com.webgeoservices.multisearch.WoosmapException;
+import com.webgeoservices.multisearch.searchdatamodels.AutocompleteResponseItem;
+
+import java.util.List;
+
+/**
+ * A callback interface receiving the autocomplete results of each provider as soon as they are available.
+ * Callbacks are invoked on a background thread
+ */
+public interface MultiSearchStreamListener {
+    /***
+     * This callback will be invoked each time a provider of the autocomplete request returns results which are kept.
+     * Providers which ignore their <code>fallbackBreakpoint</code> are called right away so their results are delivered
+     * without waiting for the providers before them
+     * @param providerType Type of the provider which returned the results
+     * @param providerResult A list of AutocompleteResponseItem objects, sorted like in the final result
+     */
+    void onProviderResults(SearchProviderType providerType, List<AutocompleteResponseItem> providerResult);
+
+    /***
+     * This callback will be invoked once the autocomplete request is complete. No more <code>onProviderResults</code> is invoked for the request afterwards
+     * @param searchResult The merged list of AutocompleteResponseItem objects, in the order of the providers. Value will be null if any exception has occurred
+     * @param exception A <code>WoosmapException</code> exception object. Will be null if there was no exception during the execution
+     */
+    void onSearchDone(List<AutocompleteResponseItem> searchResult, WoosmapException exception);
+}
@@ -1,5 +1,17 @@
 package com.webgeoservices.multisearch.models;
 
+import android.util.Log;
+
+import com.webgeoservices.multisearch.configs.HttpCachePolicy;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.Cache;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
@@ -9,19 +21,92 @@ import retrofit2.converter.gson.GsonConverterFactory;
 public class SearchRetrofitClient {
     private static Retrofit searchRetrofit = null;
     private static final String baseURL="https://api.woosmap.com/";
+    private static Cache httpCache = null;
+    private static volatile HttpCachePolicy httpCachePolicy = null;
 
     /***
      *
      * @return
      */
-    public static Retrofit getClient() {
+    public static synchronized Retrofit getClient() {
         if (searchRetrofit==null) {
+            OkHttpClient.Builder httpClient = new OkHttpClient.Builder();
+            if (httpCache!=null){
+                httpClient.cache(httpCache)
+                        .addInterceptor(SearchRetrofitClient::applyRequestPolicy)
+                        .addNetworkInterceptor(SearchRetrofitClient::applyResponsePolicy);
+            }
             searchRetrofit = new Retrofit.Builder()
                     .baseUrl(baseURL)
+                    .client(httpClient.build())
                     .addConverterFactory(GsonConverterFactory.create())
+                    //Callbacks of hedged calls complete futures only, they do not need to run on the main thread
+                    .callbackExecutor(Runnable::run)
                     .build();
         }
         return searchRetrofit;
 
     }
+
+    /***
+     * Sets the HTTP cache shared by all the providers. The client is rebuilt only if the cache directory or size changed
+     * @param directory - the directory of the cache, dedicated to it
+     * @param policy - the cache policy. Null disables the HTTP cache
+     */
+    public static synchronized void setHttpCache(File directory, HttpCachePolicy policy){
+        httpCachePolicy = policy;
+        if (policy!=null && httpCache!=null && httpCache.directory().equals(directory) && httpCache.maxSize()==policy.getCacheSize()){
+            return;
+        }
+        if (httpCache!=null){
+            try{
+                httpCache.close();
+            }
+            catch (IOException ex){
+                Log.e(SearchRetrofitClient.class.getName(),ex.toString());
+            }
+        }
+        httpCache = policy==null ? null : new Cache(directory, policy.getCacheSize());
+        searchRetrofit = null;
+    }
+
+    /***
+     * Returns the HTTP cache, which exposes its request, network and hit counts
+     * @return <code>Cache</code> object or null if the HTTP cache is disabled
+     */
+    public static synchronized Cache getHttpCache(){
+        return httpCache;
+    }
+
+    /***
+     * Prevents the responses of the endpoints which must not be cached from being stored
+     */
+    private static Response applyRequestPolicy(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpCachePolicy policy = httpCachePolicy;
+        if (policy!=null && policy.getMaxAge(request.url())==0){
+            request = request.newBuilder().header("Cache-Control", "no-store").build();
+        }
+        return chain.proceed(request);
+    }
+
+    /***
+     * Adds the maximum age of the endpoint to the successful responses sent without caching headers
+     */
+    private static Response applyResponsePolicy(Interceptor.Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+        HttpCachePolicy policy = httpCachePolicy;
+        if (policy==null || !response.isSuccessful() || !"GET".equals(chain.request().method())
+                || response.header("Cache-Control")!=null || response.header("Expires")!=null){
+            return response;
+        }
+        long maxAge = policy.getMaxAge(chain.request().url());
+        if (maxAge<=0){
+            return response;
+        }
+        return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", "public, max-age=" + maxAge)
+                .build();
+    }
 }
@@ -6,13 +6,35 @@ import org.json.JSONObject;
 
 import com.webgeoservices.multisearch.WoosmapException;
 import com.webgeoservices.multisearch.configs.ProviderConfig;
+import com.webgeoservices.multisearch.models.SearchRetrofitClient;
 import com.webgeoservices.multisearch.searchdatamodels.DetailsResponseItem;
+import com.webgeoservices.multisearch.utils.DetailsDiskCache;
+import com.webgeoservices.multisearch.utils.LatencyTracker;
+import com.webgeoservices.multisearch.utils.NegativePrefixCache;
+import com.webgeoservices.multisearch.utils.ResponseCache;
+import com.webgeoservices.multisearch.utils.SearchUtil;
 
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import okhttp3.CacheControl;
+import okhttp3.Request;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 /***
  * An abstract class which layouts the implementation framework for different provider classes. 
@@ -20,9 +42,30 @@ import retrofit2.Call;
  */
 public abstract class AbstractProvider {
     private ProviderConfig providerConfig;
+    /***
+     * Minimum delay before a duplicate <code>search</code> call is issued, in ms
+     */
+    private static final long MIN_HEDGE_DELAY = 100;
+
     protected Call<ResponseBody> call;
-    protected List<JSONObject> previousApiResult;
-    protected String previousApiURl="";
+    private volatile Call<ResponseBody> hedgeCall;
+    private final LatencyTracker searchLatencyTracker = new LatencyTracker();
+    private ResponseCache<List<JSONObject>> responseCache = new ResponseCache<>();
+    private volatile DetailsDiskCache detailsCache;
+    private volatile NegativePrefixCache negativeCache = new NegativePrefixCache(0, NegativePrefixCache.DEFAULT_TTL);
+    /***
+     * Flag of the <code>searchAllowingStale</code> call running on the thread, set when a stale response is returned
+     */
+    private static final ThreadLocal<AtomicBoolean> staleResultServed = new ThreadLocal<>();
+    /***
+     * Set while a <code>searchForRequest</code> call runs on the thread, so the ongoing call of another request is not cancelled
+     */
+    private static final ThreadLocal<Boolean> cancelledByRequest = new ThreadLocal<>();
+    /***
+     * Set while a <code>revalidate</code> call runs on the thread, so the response is fetched from the API rather than from the caches
+     */
+    private static final ThreadLocal<Boolean> networkForced = new ThreadLocal<>();
+    private volatile SearchCandidates searchCandidates;
 
     /***
      * Calls autocomplete API of the underlying Search provider
@@ -33,12 +76,100 @@ public abstract class AbstractProvider {
     public abstract List<JSONObject> search(String searchString) throws WoosmapException;
 
     /***
-     * Calls details API of the underlying Search provider
+     * Calls autocomplete API of the underlying Search provider, or returns a stale cached response if the response cache holds one
+     * which expired less than the provider's stale time ago
+     * @param searchString - the search string
+     * @param staleResult - set to true if a stale response is returned, so the caller can revalidate it
+     * @return Returns a list of JSONObjects
+     * @throws WoosmapException - Throws an exception if any was raised
+     */
+    public List<JSONObject> searchAllowingStale(String searchString, AtomicBoolean staleResult) throws WoosmapException {
+        staleResultServed.set(staleResult);
+        try{
+            return search(searchString);
+        }
+        finally {
+            staleResultServed.remove();
+        }
+    }
+
+    /***
+     * Calls autocomplete API of the underlying Search provider on behalf of a request which cancels its own calls through <code>cancel</code>.
+     * Unlike <code>search</code>, the ongoing call of a previous request is not cancelled, so a call left running in the background
+     * completes and its response is cached
+     * @param searchString - the search string
+     * @param staleResult - set to true if a stale response is returned, or null if stale responses must not be used
+     * @return Returns a list of JSONObjects
+     * @throws WoosmapException - Throws an exception if any was raised
+     */
+    public List<JSONObject> searchForRequest(String searchString, AtomicBoolean staleResult) throws WoosmapException {
+        cancelledByRequest.set(Boolean.TRUE);
+        try{
+            return staleResult == null ? search(searchString) : searchAllowingStale(searchString, staleResult);
+        }
+        finally {
+            cancelledByRequest.remove();
+        }
+    }
+
+    /***
+     * Fetches a fresh response for a search string whose cached response is stale and stores it in the response cache.
+     * The response and negative caches are skipped and the API is called bypassing the HTTP cache.
+     * The ongoing call of a request is not cancelled
+     * @param searchString - the search string
+     * @return Returns a list of JSONObjects
+     * @throws WoosmapException - Throws an exception if any was raised
+     */
+    public List<JSONObject> revalidate(String searchString) throws WoosmapException {
+        networkForced.set(Boolean.TRUE);
+        try{
+            return searchForRequest(searchString, null);
+        }
+        finally {
+            networkForced.remove();
+        }
+    }
+
+    /***
+     * Returns the details of a place. The details payload is read from the details cache if it holds a payload of the place
+     * younger than the provider's details cache time to live, otherwise it is fetched from the details API and cached.
+     * Payloads are cached per configuration of the provider, so a payload fetched with another key, language or fields is not reused.
+     * Providers which do not implement <code>fetchDetails</code> override this method
      * @param id - the place id of the place that needs to be fetched
      * @return Returns an object of <code>DetailsResponseItem</code> containing details
      * @throws WoosmapException - Throws an exception if any was raised
      */
-    public abstract DetailsResponseItem details(String id) throws WoosmapException;
+    public DetailsResponseItem details(String id) throws WoosmapException {
+        DetailsDiskCache cache = detailsCache;
+        String cacheKey = providerConfig.getType().name() + " " + getConfigScope() + " " + id;
+        long detailsCacheTtl = providerConfig.getDetailsCacheTtl();
+        JSONObject payload = cache == null ? null : cache.get(cacheKey, detailsCacheTtl);
+        if (payload == null){
+            payload = fetchDetails(id);
+            if (cache != null && detailsCacheTtl > 0){
+                cache.put(cacheKey, payload);
+            }
+        }
+        return DetailsResponseItem.fromJSON(payload, providerConfig.getType(), id);
+    }
+
+    /***
+     * Calls details API of the underlying Search provider. Throws by default
+     * @param id - the place id of the place that needs to be fetched
+     * @return Returns the details payload of the place, which is converted by <code>DetailsResponseItem.fromJSON</code>
+     * @throws WoosmapException - Throws an exception if any was raised
+     */
+    protected JSONObject fetchDetails(String id) throws WoosmapException {
+        throw new WoosmapException("Details are not supported by the " + providerConfig.getType().name().toLowerCase() + " provider");
+    }
+
+    /***
+     * Sets the persistent cache of the details payloads, shared by the providers. Null disables the cache
+     * @param detailsCache - the details cache
+     */
+    public void setDetailsCache(DetailsDiskCache detailsCache){
+        this.detailsCache = detailsCache;
+    }
 
     /***
      * Returns the configuration of the underlying search provider
@@ -48,22 +179,179 @@ public abstract class AbstractProvider {
         return providerConfig;
     }
 
+    /***
+     * Returns the latencies of the <code>search</code> API calls of the provider which reached the network.
+     * Responses served by the HTTP cache are not recorded, so they do not lower the hedge delay
+     * @return <code>LatencyTracker</code> object
+     */
+    public LatencyTracker getSearchLatencyTracker(){
+        return searchLatencyTracker;
+    }
+
     /***
      * Sets the configuration of the underlying search provider
      * @param providerConfig - the provider configuration
      */
     protected void setProviderConfig(ProviderConfig providerConfig){
         this.providerConfig = providerConfig;
+        this.responseCache = new ResponseCache<>(providerConfig.getResponseCacheSize(), providerConfig.getResponseCacheTtl(), providerConfig.getResponseCacheStaleTtl());
+        this.negativeCache = new NegativePrefixCache(providerConfig.getNegativeCacheSize(), NegativePrefixCache.DEFAULT_TTL);
+    }
+
+    /***
+     * Returns the cache of the search strings without result, which exposes its hit counter
+     * @return <code>NegativePrefixCache</code> object
+     */
+    public NegativePrefixCache getNegativeCache(){
+        return negativeCache;
+    }
+
+    /***
+     * Sets the directory the search strings without result are persisted in, if the provider's configuration persists them.
+     * The file depends on the parameters of the provider, so the search strings of another configuration are not reused
+     * @param directory - the directory, usually <code>context.getCacheDir()</code>
+     */
+    public void setNegativeCacheDirectory(File directory){
+        if (!providerConfig.shouldPersistNegativeCache() || providerConfig.getNegativeCacheSize() == 0){
+            return;
+        }
+        String fileName = "multisearch-negative-" + providerConfig.getType().name().toLowerCase() + "-" + getConfigScope();
+        negativeCache = new NegativePrefixCache(providerConfig.getNegativeCacheSize(), NegativePrefixCache.DEFAULT_TTL, new File(directory, fileName));
+    }
+
+    /***
+     * Returns a hash of the API key and of the parameters derived from the configuration, which identifies the data the provider's APIs return.
+     * The key itself is not written to the persisted caches
+     * @return the hash, in hexadecimal
+     */
+    private String getConfigScope(){
+        String scope = providerConfig.getKey() + " " + new TreeMap<>(SearchUtil.getApiQueryParameters(providerConfig))
+                + " " + Arrays.toString(providerConfig.getConfigParams().getQuery());
+        return Integer.toHexString(scope.hashCode());
     }
 
     /***
-     * Cancels out previous API call
+     * Returns the cache of the <code>search</code> responses of the provider, which exposes its hit, miss and eviction counters
+     * @return <code>ResponseCache</code> object
+     */
+    public ResponseCache<List<JSONObject>> getResponseCache(){
+        return responseCache;
+    }
+
+    /***
+     * Returns the cached response of the <code>search</code> call.
+     * An empty list is returned without calling the API if the search string extends a search string which had no result.
+     * Always null during a <code>revalidate</code> call
+     * @param searchCall - the API call
+     * @param searchString - the normalized search string
+     * @return the cached results or null if the API must be called
+     */
+    protected List<JSONObject> getCachedSearchResult(Call<ResponseBody> searchCall, String searchString){
+        if (networkForced.get() != null){
+            return null;
+        }
+        if (negativeCache.containsPrefixOf(searchString)){
+            return Collections.emptyList();
+        }
+        String cacheKey = getSearchCacheKey(searchCall);
+        List<JSONObject> cachedResult = responseCache.get(cacheKey);
+        AtomicBoolean staleResult = staleResultServed.get();
+        if (cachedResult == null && staleResult != null){
+            cachedResult = responseCache.getStale(cacheKey);
+            if (cachedResult != null){
+                staleResult.set(true);
+            }
+        }
+        return cachedResult;
+    }
+
+    /***
+     * Caches the response of the <code>search</code> call. A search string without result is also remembered by the negative cache
+     * @param searchCall - the API call
+     * @param searchString - the normalized search string
+     * @param searchResult - the results of the call
+     * @return the cached results, which can not be modified
+     */
+    protected List<JSONObject> cacheSearchResult(Call<ResponseBody> searchCall, String searchString, List<JSONObject> searchResult){
+        if (searchResult.isEmpty()){
+            negativeCache.put(searchString);
+        }
+        List<JSONObject> cachedResult = Collections.unmodifiableList(searchResult);
+        responseCache.put(getSearchCacheKey(searchCall), cachedResult);
+        return cachedResult;
+    }
+
+    /***
+     * Normalizes the search string so equivalent inputs produce the same request: trims it and collapses its white spaces
+     * @param searchString - the search string
+     * @return the normalized search string
+     */
+    protected static String normalizeSearchString(String searchString){
+        return searchString.trim().replaceAll("\\s+", " ");
+    }
+
+    /***
+     * The request URL holds the input and all the parameters derived from the configuration of the provider
+     */
+    private String getSearchCacheKey(Call<ResponseBody> searchCall){
+        return providerConfig.getType().name() + " " + searchCall.request().url();
+    }
+
+    /***
+     * Cancels the ongoing API call of the provider, if any.
+     * The interrupted <code>search</code> returns an empty list
+     */
+    public void cancel(){
+        cancelPreviousApiCall();
+    }
+
+    /***
+     * Remembers the results of a <code>search</code> call so the longer inputs starting with the same search string can be answered locally.
+     * They are only kept if they hold all the matches of the search string, i.e. if there are fewer results than the provider's page size,
+     * and expire after the provider's response cache time to live, like the cached response they come from
+     * @param searchString - the search string
+     * @param candidates - the results of the <code>search</code> call
+     */
+    public void recordSearchCandidates(String searchString, List<JSONObject> candidates){
+        int pageSize = providerConfig.getPageSize();
+        if (pageSize > 0 && candidates != null && candidates.size() < pageSize){
+            searchCandidates = new SearchCandidates(searchString, candidates);
+        }
+        else{
+            searchCandidates = null;
+        }
+    }
+
+    /***
+     * Returns the complete results of a previous search string which the given search string extends
+     * @param searchString - the search string
+     * @return the previous results, which contain all the results of the search string, or null if the API must be called
+     */
+    public List<JSONObject> getNarrowingCandidates(String searchString){
+        SearchCandidates candidates = searchCandidates;
+        if (candidates == null || !searchString.startsWith(candidates.searchString)){
+            return null;
+        }
+        if (System.currentTimeMillis() - candidates.storedAt > providerConfig.getResponseCacheTtl()){
+            return null;
+        }
+        return candidates.candidates;
+    }
+
+    /***
+     * Cancels out previous API call. Does nothing during a <code>searchForRequest</code> call, whose caller cancels the previous calls itself
      */
     protected void cancelPreviousApiCall() {
+        if (cancelledByRequest.get() != null){
+            return;
+        }
         try {
             if (call != null) {
                 call.cancel();
             }
+            if (hedgeCall != null) {
+                hedgeCall.cancel();
+            }
         }
         catch (Exception ex){
             Log.e(AbstractProvider.class.getName(),ex.toString());
@@ -71,4 +359,199 @@ public abstract class AbstractProvider {
 
     }
 
+    /***
+     * Executes the <code>search</code> API call and records its latency.
+     * If the provider has a hedge percentile and the call has not returned after that percentile of the recorded latencies,
+     * a duplicate of the call is issued. The first successful response is returned and the other call is cancelled.
+     * <code>call</code> is set to the call which produced the response.
+     * During a <code>revalidate</code> call, the request is sent once, bypassing the HTTP cache
+     * @param searchCall - the API call
+     * @return the response
+     * @throws IOException - Throws an exception if the calls failed or were cancelled
+     */
+    protected Response<ResponseBody> executeSearch(Call<ResponseBody> searchCall) throws IOException {
+        if (networkForced.get() != null){
+            return executeOnNetwork(searchCall);
+        }
+        long hedgeDelay = getHedgeDelay();
+        long start = System.currentTimeMillis();
+        if (hedgeDelay < 0){
+            Response<ResponseBody> response = searchCall.execute();
+            recordLatency(response, System.currentTimeMillis() - start);
+            return response;
+        }
+
+        CompletableFuture<Response<ResponseBody>> primary = enqueue(searchCall);
+        try{
+            Response<ResponseBody> response = primary.get(hedgeDelay, TimeUnit.MILLISECONDS);
+            recordLatency(response, System.currentTimeMillis() - start);
+            return response;
+        }
+        catch (TimeoutException ex){
+            //The call is slower than usual, issue a duplicate below
+        }
+        catch (ExecutionException ex){
+            throw toIOException(ex.getCause());
+        }
+        catch (InterruptedException ex){
+            searchCall.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        }
+        if (searchCall.isCanceled()){
+            throw new IOException("Canceled");
+        }
+
+        long hedgeStart = System.currentTimeMillis();
+        Call<ResponseBody> duplicateCall = searchCall.clone();
+        hedgeCall = duplicateCall;
+        CompletableFuture<Response<ResponseBody>> hedge = enqueue(duplicateCall);
+        try{
+            Response<ResponseBody> response = firstSuccessful(primary, hedge).get();
+            boolean isPrimaryResponse = primary.isDone() && !primary.isCompletedExceptionally() && primary.join() == response;
+            discard(isPrimaryResponse ? duplicateCall : searchCall, isPrimaryResponse ? hedge : primary);
+            if (call == searchCall){ //Unless a call of another request was started meanwhile
+                call = isPrimaryResponse ? searchCall : duplicateCall;
+            }
+            recordLatency(response, System.currentTimeMillis() - (isPrimaryResponse ? start : hedgeStart));
+            return response;
+        }
+        catch (ExecutionException ex){
+            throw toIOException(ex.getCause());
+        }
+        catch (InterruptedException ex){
+            searchCall.cancel();
+            duplicateCall.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        }
+        finally {
+            if (hedgeCall == duplicateCall){
+                hedgeCall = null;
+            }
+        }
+    }
+
+    /***
+     * Sends the request of the call to the API, even if the HTTP cache holds a fresh response. The HTTP cache stores the new response
+     * @param searchCall - the API call
+     * @return the response
+     * @throws IOException - Throws an exception if the call failed
+     */
+    private Response<ResponseBody> executeOnNetwork(Call<ResponseBody> searchCall) throws IOException {
+        Request request = searchCall.request().newBuilder().cacheControl(CacheControl.FORCE_NETWORK).build();
+        long start = System.currentTimeMillis();
+        okhttp3.Response rawResponse = SearchRetrofitClient.getClient().callFactory().newCall(request).execute();
+        Response<ResponseBody> response = rawResponse.isSuccessful() ? Response.success(rawResponse.body(), rawResponse) : Response.error(rawResponse.body(), rawResponse);
+        recordLatency(response, System.currentTimeMillis() - start);
+        return response;
+    }
+
+    /***
+     * Records the latency of a response which reached the network. Responses served by the HTTP cache take no time and would skew the percentiles
+     * @param response - the response
+     * @param latency - the latency in ms
+     */
+    private void recordLatency(Response<ResponseBody> response, long latency){
+        if (response.raw().networkResponse() != null){
+            searchLatencyTracker.record(latency);
+        }
+    }
+
+    /***
+     * Returns the delay after which a duplicate <code>search</code> call is issued or -1 if the provider does not hedge its calls
+     * or not enough latencies were recorded yet
+     * @return the delay in ms
+     */
+    private long getHedgeDelay(){
+        float hedgePercentile = providerConfig.getHedgePercentile();
+        if (hedgePercentile <= 0){
+            return -1;
+        }
+        long percentileLatency = searchLatencyTracker.getPercentile(hedgePercentile);
+        return percentileLatency < 0 ? -1 : Math.max(MIN_HEDGE_DELAY, percentileLatency);
+    }
+
+    /***
+     * Executes the call asynchronously
+     * @param apiCall - the API call
+     * @return a future completed with the response of the call
+     */
+    private static CompletableFuture<Response<ResponseBody>> enqueue(Call<ResponseBody> apiCall){
+        CompletableFuture<Response<ResponseBody>> future = new CompletableFuture<>();
+        apiCall.enqueue(new Callback<ResponseBody>() {
+            @Override
+            public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(Call<ResponseBody> call, Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+        });
+        return future;
+    }
+
+    /***
+     * Returns a future completed with the first response, or with the last failure if both calls failed
+     */
+    private static CompletableFuture<Response<ResponseBody>> firstSuccessful(CompletableFuture<Response<ResponseBody>> first, CompletableFuture<Response<ResponseBody>> second){
+        CompletableFuture<Response<ResponseBody>> result = new CompletableFuture<>();
+        first.whenComplete((response, throwable) -> {
+            if (throwable == null){
+                result.complete(response);
+            }
+            else if (second.isCompletedExceptionally()){
+                result.completeExceptionally(throwable);
+            }
+        });
+        second.whenComplete((response, throwable) -> {
+            if (throwable == null){
+                result.complete(response);
+            }
+            else if (first.isCompletedExceptionally()){
+                result.completeExceptionally(throwable);
+            }
+        });
+        return result;
+    }
+
+    /***
+     * Cancels the losing call and closes its response if it completed anyway
+     */
+    private static void discard(Call<ResponseBody> apiCall, CompletableFuture<Response<ResponseBody>> future){
+        apiCall.cancel();
+        future.whenComplete((response, throwable) -> {
+            if (response != null){
+                if (response.body() != null){
+                    response.body().close();
+                }
+                if (response.errorBody() != null){
+                    response.errorBody().close();
+                }
+            }
+        });
+    }
+
+    /***
+     * Complete results of a search string
+     */
+    private static class SearchCandidates {
+        private final String searchString;
+        private final List<JSONObject> candidates;
+        private final long storedAt = System.currentTimeMillis();
+
+        private SearchCandidates(String searchString, List<JSONObject> candidates){
+            this.searchString = searchString;
+            this.candidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+        }
+    }
+
+    private static IOException toIOException(Throwable throwable){
+        if (throwable instanceof IOException){
+            return (IOException) throwable;
+        }
+        return new IOException(throwable);
+    }
 }
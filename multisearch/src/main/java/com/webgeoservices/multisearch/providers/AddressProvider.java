@@ -3,12 +3,10 @@ package com.webgeoservices.multisearch.providers;
 import android.util.Base64;
 import android.util.Log;
 
-import com.webgeoservices.multisearch.SearchProviderType;
 import com.webgeoservices.multisearch.WoosmapException;
 import com.webgeoservices.multisearch.configs.ProviderConfig;
 import com.webgeoservices.multisearch.models.SearchApis;
 import com.webgeoservices.multisearch.models.SearchRetrofitClient;
-import com.webgeoservices.multisearch.searchdatamodels.DetailsResponseItem;
 import com.webgeoservices.multisearch.utils.SearchUtil;
 
 import org.json.JSONArray;
@@ -20,6 +18,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import okhttp3.ResponseBody;
+import retrofit2.Call;
 import retrofit2.Response;
 
 /***
@@ -36,6 +35,7 @@ public class AddressProvider extends AbstractProvider {
     @Override
     public List<JSONObject> search(String searchString) throws WoosmapException{
         SearchApis apis;
+        Call<ResponseBody> searchCall=null;
         try {
             if (getProviderConfig() == null) {
                 Log.e(AddressProvider.class.getName(), "You have not initialized Address provider");
@@ -46,6 +46,7 @@ public class AddressProvider extends AbstractProvider {
                 return null;
             }
             cancelPreviousApiCall();
+            searchString=normalizeSearchString(searchString);
             apis = SearchRetrofitClient.getClient().create(SearchApis.class);
             HashMap<String,String> params=new HashMap<>();
             params.put("input",searchString);
@@ -54,11 +55,13 @@ public class AddressProvider extends AbstractProvider {
                 params.putAll(extraParams);
             }
             params.put("cc_format","alpha2");
-            call=apis.getAddress(getProviderConfig().getKey(),params);
-            if (this.previousApiURl.equals(call.request().url().toString())) {
-                return this.previousApiResult;
+            searchCall=apis.getAddress(getProviderConfig().getKey(),params);
+            call=searchCall;
+            List<JSONObject> cachedResult=getCachedSearchResult(searchCall,searchString);
+            if (cachedResult!=null) {
+                return cachedResult;
             }
-            Response<ResponseBody> response= call.execute();
+            Response<ResponseBody> response= executeSearch(searchCall);
             if(response.isSuccessful()){
                 List<JSONObject>apiResult=new ArrayList<>();
                 assert response.body() != null;
@@ -68,9 +71,7 @@ public class AddressProvider extends AbstractProvider {
                     for (int i=0;i<addressArray.length();i++){
                         apiResult.add(addressArray.getJSONObject(i));
                     }
-                    this.previousApiResult=apiResult;
-                    this.previousApiURl=call.request().url().toString();
-                    return apiResult;
+                    return cacheSearchResult(searchCall,searchString,apiResult);
 
                 }
                 throw new WoosmapException(object.getString("error_message"));
@@ -87,7 +88,7 @@ public class AddressProvider extends AbstractProvider {
                 throw new WoosmapException("Internal error, please try again later.");
             }
         }catch (Exception exception){
-            if (!call.isCanceled()){
+            if (searchCall==null || !searchCall.isCanceled()){
                 throw new WoosmapException(exception.getMessage());
             }
         }
@@ -97,13 +98,12 @@ public class AddressProvider extends AbstractProvider {
     /***
      * Calls details API of the Address provider
      * @param id - the place id of the place that needs to be fetched
-     * @return Returns an object of <code>DetailsResponseItem</code> containing details
+     * @return Returns the details payload of the place
      * @throws WoosmapException - Throws an exception if any was raised
      */
     @Override
-    public DetailsResponseItem details(String id) throws WoosmapException {
+    protected JSONObject fetchDetails(String id) throws WoosmapException {
         SearchApis apis;
-        DetailsResponseItem detailsResponseItem;
         try {
             cancelPreviousApiCall();
             apis = SearchRetrofitClient.getClient().create(SearchApis.class);
@@ -120,10 +120,7 @@ public class AddressProvider extends AbstractProvider {
                 assert response.body() != null;
                 JSONObject object;
                 object = new JSONObject(response.body().string());
-                detailsResponseItem=DetailsResponseItem.fromJSON(object.getJSONObject("result")
-                        , SearchProviderType.ADDRESS,id);
-                
-                return detailsResponseItem;
+                return object.getJSONObject("result");
                 }
             else {
                 assert response.errorBody() != null;
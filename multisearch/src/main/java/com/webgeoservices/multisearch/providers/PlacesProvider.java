@@ -2,14 +2,12 @@ package com.webgeoservices.multisearch.providers;
 
 import android.util.Log;
 
-import com.webgeoservices.multisearch.SearchProviderType;
 import com.webgeoservices.multisearch.WoosmapException;
 import com.webgeoservices.multisearch.configs.ConfigParams;
 import com.webgeoservices.multisearch.configs.ProviderConfig;
 import com.webgeoservices.multisearch.models.SearchApis;
 import com.webgeoservices.multisearch.models.SearchRetrofitClient;
 import com.webgeoservices.multisearch.utils.SearchUtil;
-import com.webgeoservices.multisearch.searchdatamodels.DetailsResponseItem;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -19,6 +17,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import okhttp3.ResponseBody;
+import retrofit2.Call;
 import retrofit2.Response;
 
 /**
@@ -36,6 +35,7 @@ public class PlacesProvider extends AbstractProvider {
     @Override
     public List<JSONObject> search(String searchString)throws WoosmapException {
         SearchApis apis;
+        Call<ResponseBody> searchCall=null;
         try {
             if (getProviderConfig() == null) {
                 Log.e("PlacesProvider", "You have not initialized Place provider");
@@ -46,14 +46,17 @@ public class PlacesProvider extends AbstractProvider {
                 return null;
             }
             cancelPreviousApiCall();
+            searchString=normalizeSearchString(searchString);
             String url=SearchUtil.googleApi+"input="+ URLEncoder.encode(searchString,"UTF-8")+"&key="+getProviderConfig().getKey();
             url=getParameterAddedString(url,getProviderConfig(),false);
             apis = SearchRetrofitClient.getClient().create(SearchApis.class);
-            call = apis.getPlaces(url);
-            if (this.previousApiURl.equals(call.request().url().toString())) {
-                return this.previousApiResult;
+            searchCall=apis.getPlaces(url);
+            call=searchCall;
+            List<JSONObject> cachedResult=getCachedSearchResult(searchCall,searchString);
+            if (cachedResult!=null) {
+                return cachedResult;
             }
-            Response<ResponseBody> response= call.execute();
+            Response<ResponseBody> response= executeSearch(searchCall);
             if(response.isSuccessful()){
                 List<JSONObject>apiResult=new ArrayList<>();
                 assert response.body() != null;
@@ -63,9 +66,7 @@ public class PlacesProvider extends AbstractProvider {
                     for (int i=0;i<addressArray.length();i++){
                         apiResult.add(addressArray.getJSONObject(i));
                     }
-                    this.previousApiResult=apiResult;
-                    this.previousApiURl=call.request().url().toString();
-                    return apiResult;
+                    return cacheSearchResult(searchCall,searchString,apiResult);
                 } else{
                     if (object.has("error_message")){
                         throw new WoosmapException(object.getString("error_message"));
@@ -78,7 +79,7 @@ public class PlacesProvider extends AbstractProvider {
                 throw new WoosmapException("Error " + response.code());
             }
         }catch (Exception exception){
-            if (!call.isCanceled()){
+            if (searchCall==null || !searchCall.isCanceled()){
                 throw new WoosmapException(exception.getMessage());
             }
         }
@@ -88,13 +89,12 @@ public class PlacesProvider extends AbstractProvider {
     /***
      * Calls Google Place Details API
      * @param id - the place id of the place that needs to be fetched
-     * @return Returns an object of <code>DetailsResponseItem</code> containing details
+     * @return Returns the details payload of the place
      * @throws WoosmapException - Throws an exception if any was raised
      */
     @Override
-    public DetailsResponseItem details(String id) throws WoosmapException {
+    protected JSONObject fetchDetails(String id) throws WoosmapException {
         SearchApis apis;
-        DetailsResponseItem detailsResponseItem;
         try {
             cancelPreviousApiCall();
             apis = SearchRetrofitClient.getClient().create(SearchApis.class);
@@ -106,10 +106,7 @@ public class PlacesProvider extends AbstractProvider {
                 assert response.body() != null;
                 JSONObject object=new JSONObject(response.body().string());
                 if (object.getString("status").equalsIgnoreCase("OK")){
-                    detailsResponseItem=DetailsResponseItem.fromJSON(object.getJSONObject("result")
-                            , SearchProviderType.PLACES,id);
-
-                    return detailsResponseItem;
+                    return object.getJSONObject("result");
                 }
                 else{
                     if (object.has("error_message")){
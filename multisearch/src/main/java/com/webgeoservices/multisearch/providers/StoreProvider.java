@@ -2,12 +2,10 @@ package com.webgeoservices.multisearch.providers;
 
 import android.util.Log;
 
-import com.webgeoservices.multisearch.SearchProviderType;
 import com.webgeoservices.multisearch.WoosmapException;
 import com.webgeoservices.multisearch.configs.ProviderConfig;
 import com.webgeoservices.multisearch.models.SearchApis;
 import com.webgeoservices.multisearch.models.SearchRetrofitClient;
-import com.webgeoservices.multisearch.searchdatamodels.DetailsResponseItem;
 import com.webgeoservices.multisearch.utils.SearchUtil;
 
 import org.json.JSONArray;
@@ -18,6 +16,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import okhttp3.ResponseBody;
+import retrofit2.Call;
 import retrofit2.Response;
 
 /**
@@ -34,6 +33,7 @@ public class StoreProvider  extends AbstractProvider {
     @Override
     public List<JSONObject> search(String searchString) throws WoosmapException {
         SearchApis apis;
+        Call<ResponseBody> searchCall=null;
         try {
             if (getProviderConfig() == null) {
                 Log.e("StoreProvider", "You have not initialized Store provider");
@@ -44,6 +44,7 @@ public class StoreProvider  extends AbstractProvider {
                 return null;
             }
             cancelPreviousApiCall();
+            searchString=normalizeSearchString(searchString);
             apis = SearchRetrofitClient.getClient().create(SearchApis.class);
             HashMap<String,String> params=new HashMap<>();
             if(getProviderConfig().getConfigParams().getQuery()!=null&&getProviderConfig().getConfigParams().getQuery().length>0){
@@ -55,11 +56,13 @@ public class StoreProvider  extends AbstractProvider {
             if(!extraParams.isEmpty()){
                 params.putAll(extraParams);
             }
-            call = apis.getStore((getProviderConfig().getKey()), params);
-            if (this.previousApiURl.equals(call.request().url().toString())) {
-                return this.previousApiResult;
+            searchCall=apis.getStore((getProviderConfig().getKey()), params);
+            call=searchCall;
+            List<JSONObject> cachedResult=getCachedSearchResult(searchCall,searchString);
+            if (cachedResult!=null) {
+                return cachedResult;
             }
-            Response<ResponseBody> response= call.execute();
+            Response<ResponseBody> response= executeSearch(searchCall);
             if(response.isSuccessful()){
                 List<JSONObject>apiResult=new ArrayList<>();
                 assert response.body() != null;
@@ -71,9 +74,7 @@ public class StoreProvider  extends AbstractProvider {
                     addressArray.getJSONObject(i).put("description",addressArray.getJSONObject(i).getString("name"));
                     apiResult.add(addressArray.getJSONObject(i));
                 }
-                this.previousApiResult=apiResult;
-                this.previousApiURl=call.request().url().toString();
-                return apiResult;
+                return cacheSearchResult(searchCall,searchString,apiResult);
             }else {
                 assert response.errorBody() != null;
                 JSONObject errorObject;
@@ -87,7 +88,7 @@ public class StoreProvider  extends AbstractProvider {
                 throw new WoosmapException("Internal error, please try again later.");
             }
         }catch (Exception exception){
-            if (!call.isCanceled()){
+            if (searchCall==null || !searchCall.isCanceled()){
                 throw new WoosmapException(exception.getMessage());
             }
         }
@@ -97,13 +98,12 @@ public class StoreProvider  extends AbstractProvider {
     /***
      * Calls Store Details API
      * @param id - the place id of the place that needs to be fetched
-     * @return Returns an object of <code>DetailsResponseItem</code> containing details
+     * @return Returns the details payload of the place
      * @throws WoosmapException - Throws an exception if any was raised
      */
     @Override
-    public DetailsResponseItem details(String id) throws WoosmapException {
+    protected JSONObject fetchDetails(String id) throws WoosmapException {
         SearchApis apis;
-        DetailsResponseItem detailsResponseItem;
         try {
             cancelPreviousApiCall();
             apis = SearchRetrofitClient.getClient().create(SearchApis.class);
@@ -125,9 +125,7 @@ public class StoreProvider  extends AbstractProvider {
                 object = new JSONObject(response.body().string());
                 if (!object.has("error_message")){
                     if (object.getJSONArray("features").length()>0){
-                        detailsResponseItem=DetailsResponseItem.fromJSON(object.getJSONArray("features").getJSONObject(0)
-                                , SearchProviderType.STORE,id);
-                        return detailsResponseItem;
+                        return object.getJSONArray("features").getJSONObject(0);
                     }
                     throw new WoosmapException(object.getString("ZERO RESULTS"));
                 }
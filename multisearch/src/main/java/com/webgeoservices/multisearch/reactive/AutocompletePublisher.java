@@ -0,0 +1,243 @@
+package com.webgeoservices.multisearch.reactive;
+
+import com.webgeoservices.multisearch.WoosmapException;
+import com.webgeoservices.multisearch.interfaces.DebouncePolicy;
+import com.webgeoservices.multisearch.listeners.MultiSearchListener;
+import com.webgeoservices.multisearch.scheduling.KeystrokeScheduler;
+import com.webgeoservices.multisearch.searchdatamodels.AutocompleteResponseItem;
+import com.webgeoservices.multisearch.searchdatamodels.DetailsResponseItem;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/***
+ * Publishes the autocomplete results of a stream of search strings, with switch-latest semantics:
+ * a new search string drops the results of the previous one, even if its request is still running.
+ * Search strings are debounced by a <code>KeystrokeScheduler</code> owned by each subscription.
+ * If the subscriber has no demand, only the latest result list is kept until it requests more.
+ * A failed request, or a search function which throws, terminates the stream with <code>onError</code>.
+ * Each subscription subscribes to the search strings publisher
+ */
+public class AutocompletePublisher implements Publisher<List<AutocompleteResponseItem>> {
+    private final Publisher<String> searchStrings;
+    private final BiConsumer<String, MultiSearchListener> search;
+    private final Supplier<DebouncePolicy> debouncePolicy;
+
+    /***
+     * The constructor
+     * @param searchStrings - the publisher of the search strings
+     * @param search - runs the autocomplete request of a search string and reports its results to the given listener
+     * @param debouncePolicy - supplies the debounce policy applied to each search string
+     */
+    public AutocompletePublisher(Publisher<String> searchStrings, BiConsumer<String, MultiSearchListener> search, Supplier<DebouncePolicy> debouncePolicy){
+        this.searchStrings = searchStrings;
+        this.search = search;
+        this.debouncePolicy = debouncePolicy;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super List<AutocompleteResponseItem>> subscriber) {
+        if (subscriber == null){
+            throw new NullPointerException("subscriber can not be null");
+        }
+        SearchSubscription subscription = new SearchSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        searchStrings.subscribe(subscription);
+    }
+
+    /***
+     * Subscription of a result subscriber, which is also the subscriber of the search strings.
+     * Signals to the result subscriber are serialized by the <code>drain</code> loop
+     */
+    private class SearchSubscription implements Subscription, Subscriber<String> {
+        private final Subscriber<? super List<AutocompleteResponseItem>> subscriber;
+        private final KeystrokeScheduler keystrokeScheduler = new KeystrokeScheduler();
+        private final AtomicReference<Subscription> upstream = new AtomicReference<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong searchGeneration = new AtomicLong();
+        private final AtomicReference<List<AutocompleteResponseItem>> latestResult = new AtomicReference<>();
+        private volatile long answeredGeneration = 0;
+        private volatile boolean upstreamDone = false;
+        private volatile Throwable error;
+        private volatile boolean cancelled = false;
+        private boolean terminated = false;
+
+        private SearchSubscription(Subscriber<? super List<AutocompleteResponseItem>> subscriber){
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0){
+                fail(new IllegalArgumentException("Requested number of results must be greater than 0"));
+                return;
+            }
+            long current;
+            do {
+                current = requested.get();
+                if (current == Long.MAX_VALUE){
+                    break;
+                }
+            } while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled){
+                return;
+            }
+            cancelled = true;
+            cancelUpstream();
+            keystrokeScheduler.shutdown();
+            drain();
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            if (cancelled || !upstream.compareAndSet(null, subscription)){
+                subscription.cancel();
+                return;
+            }
+            //Every search string is consumed, the debounce drops the ones which are superseded
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String searchString) {
+            if (cancelled || upstreamDone || error != null){
+                return;
+            }
+            final long generation = searchGeneration.incrementAndGet();
+            final String query = searchString == null ? "" : searchString.trim();
+            keystrokeScheduler.submit(() -> runSearch(query, generation), debouncePolicy.get());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            fail(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            upstreamDone = true;
+            drain();
+        }
+
+        /***
+         * Runs the request of a search string, unless a newer search string was received
+         */
+        private void runSearch(String query, long generation){
+            if (cancelled || generation != searchGeneration.get()){
+                return;
+            }
+            try{
+                search.accept(query, listenerFor(generation));
+            }
+            catch (RuntimeException ex){
+                fail(ex); //Surfaced to the subscriber rather than swallowed by the keystroke thread
+            }
+        }
+
+        /***
+         * Returns the listener receiving the results of a search string
+         */
+        private MultiSearchListener listenerFor(long generation){
+            return new MultiSearchListener() {
+                @Override
+                public void onSearchComplete(List<AutocompleteResponseItem> searchResult, WoosmapException exception) {
+                    //Switch-latest: the results of a superseded search string are dropped
+                    if (generation != searchGeneration.get()){
+                        return;
+                    }
+                    if (exception != null){
+                        fail(exception);
+                        return;
+                    }
+                    latestResult.set(searchResult);
+                    answeredGeneration = generation;
+                    drain();
+                }
+
+                @Override
+                public void onDetailComplete(DetailsResponseItem detailResult, WoosmapException exception) {
+                }
+            };
+        }
+
+        private void fail(Throwable throwable){
+            if (error == null){
+                error = throwable;
+            }
+            cancelUpstream();
+            keystrokeScheduler.shutdown();
+            drain();
+        }
+
+        private void cancelUpstream(){
+            Subscription subscription = upstream.getAndSet(CANCELLED);
+            if (subscription != null && subscription != CANCELLED){
+                subscription.cancel();
+            }
+        }
+
+        /***
+         * Delivers the latest result if there is demand, then the terminal signal once the search strings are complete and the last one was answered
+         */
+        private void drain(){
+            if (wip.getAndIncrement() != 0){
+                return;
+            }
+            int missed = 1;
+            do {
+                if (cancelled || terminated){
+                    latestResult.set(null);
+                }
+                else if (error != null){
+                    terminated = true;
+                    latestResult.set(null);
+                    subscriber.onError(error);
+                }
+                else{
+                    if (requested.get() > 0){
+                        List<AutocompleteResponseItem> result = latestResult.getAndSet(null);
+                        if (result != null){
+                            if (requested.get() != Long.MAX_VALUE){
+                                requested.decrementAndGet();
+                            }
+                            subscriber.onNext(result);
+                        }
+                    }
+                    if (upstreamDone && latestResult.get() == null && answeredGeneration == searchGeneration.get()){
+                        terminated = true;
+                        keystrokeScheduler.shutdown();
+                        subscriber.onComplete();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+    /***
+     * Marks a cancelled upstream subscription
+     */
+    private static final Subscription CANCELLED = new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+}
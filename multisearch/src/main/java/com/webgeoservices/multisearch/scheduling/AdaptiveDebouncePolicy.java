@@ -0,0 +1,151 @@
+package com.webgeoservices.multisearch.scheduling;
+
+import com.webgeoservices.multisearch.interfaces.DebouncePolicy;
+
+/***
+ * Picks the delay of every keystroke from the typing cadence and the latency of the recent requests.
+ * <ul>
+ *     <li>The first keystroke after an idle period runs right away (leading edge)</li>
+ *     <li>Slow typists, whose keystrokes are further apart than the maximum delay, get the minimum delay since waiting would not save any request</li>
+ *     <li>During a burst the delay is a bit longer than the usual interval between keystrokes, so the next keystroke replaces the pending request.
+ *     It is also longer when the requests are slow, since a slow request is more likely to be superseded before it completes</li>
+ * </ul>
+ * Intervals and latencies are smoothed with an exponentially weighted moving average.
+ * Implements DebouncePolicy interface
+ */
+public class AdaptiveDebouncePolicy implements DebouncePolicy {
+    private final long minDelay;
+    private final long maxDelay;
+    private final long idleTime;
+    private final double burstFactor;
+    private final double latencyFactor;
+    private final double smoothingFactor;
+
+    private long lastKeystrokeTime = -1;
+    private double averageInterval = -1;
+    private double averageLatency = 0;
+
+    /***
+     * Private constructor used by the <code>Builder</code> class to construct AdaptiveDebouncePolicy object
+     * @param builder
+     */
+    private AdaptiveDebouncePolicy(Builder builder){
+        this.minDelay = builder.minDelay;
+        this.maxDelay = builder.maxDelay;
+        this.idleTime = builder.idleTime;
+        this.burstFactor = builder.burstFactor;
+        this.latencyFactor = builder.latencyFactor;
+        this.smoothingFactor = builder.smoothingFactor;
+    }
+
+    @Override
+    public synchronized long nextDelay(long keystrokeTime) {
+        long interval = lastKeystrokeTime < 0 ? -1 : keystrokeTime - lastKeystrokeTime;
+        lastKeystrokeTime = keystrokeTime;
+        if (interval < 0 || interval >= idleTime){
+            //Leading edge. The cadence of a previous typing session is not relevant anymore
+            averageInterval = -1;
+            return 0;
+        }
+        averageInterval = averageInterval < 0 ? interval : smoothingFactor * interval + (1 - smoothingFactor) * averageInterval;
+        if (averageInterval >= maxDelay){
+            return minDelay;
+        }
+        double delay = Math.max(burstFactor * averageInterval, latencyFactor * averageLatency);
+        return Math.max(minDelay, Math.min(maxDelay, Math.round(delay)));
+    }
+
+    @Override
+    public synchronized void recordLatency(long latency) {
+        averageLatency = averageLatency == 0 ? latency : smoothingFactor * latency + (1 - smoothingFactor) * averageLatency;
+    }
+
+    /***
+     * A builder class which is used to create AdaptiveDebouncePolicy object
+     */
+    public static class Builder{
+        private long minDelay = 50;
+        private long maxDelay = 400;
+        private long idleTime = 1000;
+        private double burstFactor = 1.5;
+        private double latencyFactor = 0.5;
+        private double smoothingFactor = 0.3;
+
+        /***
+         * Shortest delay, in ms, applied after a keystroke which is not on the leading edge. Defaults to 50
+         * @param minDelay - the minimum delay
+         * @return
+         */
+        public Builder minDelay(long minDelay){
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        /***
+         * Longest delay, in ms. Keystrokes further apart than this are considered slow typing. Defaults to 400
+         * @param maxDelay - the maximum delay
+         * @return
+         */
+        public Builder maxDelay(long maxDelay){
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        /***
+         * Time without keystroke, in ms, after which the next keystroke runs right away. Defaults to 1000
+         * @param idleTime - the idle time
+         * @return
+         */
+        public Builder idleTime(long idleTime){
+            this.idleTime = idleTime;
+            return this;
+        }
+
+        /***
+         * Multiplier of the average interval between keystrokes during a burst. Defaults to 1.5
+         * @param burstFactor - the burst factor
+         * @return
+         */
+        public Builder burstFactor(double burstFactor){
+            this.burstFactor = burstFactor;
+            return this;
+        }
+
+        /***
+         * Multiplier of the average request latency during a burst. Defaults to 0.5
+         * @param latencyFactor - the latency factor
+         * @return
+         */
+        public Builder latencyFactor(double latencyFactor){
+            this.latencyFactor = latencyFactor;
+            return this;
+        }
+
+        /***
+         * Weight of the latest sample in the moving averages, between 0 and 1. Defaults to 0.3
+         * @param smoothingFactor - the smoothing factor
+         * @return
+         */
+        public Builder smoothingFactor(double smoothingFactor){
+            this.smoothingFactor = smoothingFactor;
+            return this;
+        }
+
+        /***
+         * Builds and returns <code>AdaptiveDebouncePolicy</code> object based on the provided parameters
+         * @return the AdaptiveDebouncePolicy object
+         */
+        public AdaptiveDebouncePolicy build(){
+            if (minDelay < 0 || maxDelay < minDelay){
+                throw new RuntimeException("Delays must satisfy 0 <= minDelay <= maxDelay");
+            }
+            if (idleTime <= 0){
+                throw new RuntimeException("idleTime must be greater than 0");
+            }
+            if (smoothingFactor <= 0 || smoothingFactor > 1){
+                throw new RuntimeException("smoothingFactor must be between 0 and 1");
+            }
+            return new AdaptiveDebouncePolicy(this);
+        }
+    }
+}
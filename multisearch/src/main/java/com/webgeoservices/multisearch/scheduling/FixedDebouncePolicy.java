@@ -0,0 +1,35 @@
+package com.webgeoservices.multisearch.scheduling;
+
+import com.webgeoservices.multisearch.interfaces.DebouncePolicy;
+
+/***
+ * Waits the same amount of time after every keystroke
+ * Implements DebouncePolicy interface
+ */
+public class FixedDebouncePolicy implements DebouncePolicy {
+    private final long debounceTime;
+
+    /***
+     * The constructor
+     * @param debounceTime - the amount of time in ms to wait after every keystroke. 0 runs the requests right away
+     */
+    public FixedDebouncePolicy(long debounceTime){
+        if (debounceTime < 0){
+            throw new IllegalArgumentException("debounceTime must be greater than or equal to 0");
+        }
+        this.debounceTime = debounceTime;
+    }
+
+    /***
+     * Returns the debounce time
+     * @return long
+     */
+    public long getDebounceTime() {
+        return debounceTime;
+    }
+
+    @Override
+    public long nextDelay(long keystrokeTime) {
+        return debounceTime;
+    }
+}
@@ -0,0 +1,199 @@
+package com.webgeoservices.multisearch.scheduling;
+
+import android.util.Log;
+
+import com.webgeoservices.multisearch.interfaces.DebouncePolicy;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * Schedules the autocomplete requests of the keystrokes.
+ * Owns debouncing (through a <code>DebouncePolicy</code>), throttling, coalescing and cancellation for all the autocomplete entry points:
+ * only the request of the latest keystroke can be pending, a new keystroke drops the pending one.
+ * Requests run on a <code>ScheduledExecutorService</code> instead of the main looper, so the scheduler also works in JVM tests and background services.
+ * Exceptions thrown by a request are logged, they do not prevent the next requests from running.
+ * Thread safe
+ */
+public class KeystrokeScheduler {
+    private static final AtomicInteger schedulerCounter = new AtomicInteger();
+
+    private final ScheduledExecutorService executor;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong firedCount = new AtomicLong();
+    private final AtomicLong lastFireTime = new AtomicLong(-1);
+    private long throttleInterval = 0;
+    private PendingRequest pendingRequest;
+
+    /***
+     * The constructor. Requests run on a dedicated daemon thread, which stops when no request was scheduled for a while
+     */
+    public KeystrokeScheduler(){
+        this(newDefaultExecutor());
+    }
+
+    /***
+     * The constructor
+     * @param executor - the executor running the requests
+     */
+    public KeystrokeScheduler(ScheduledExecutorService executor){
+        this.executor = executor;
+    }
+
+    /***
+     * Returns the minimum time between two requests
+     * @return the interval in ms
+     */
+    public synchronized long getThrottleInterval() {
+        return throttleInterval;
+    }
+
+    /***
+     * Sets the minimum time between the start of two requests. A request due earlier is delayed. 0 (the default) disables throttling
+     * @param throttleInterval - the interval in ms
+     */
+    public synchronized void setThrottleInterval(long throttleInterval) {
+        if (throttleInterval < 0){
+            throw new IllegalArgumentException("throttleInterval must be greater than or equal to 0");
+        }
+        this.throttleInterval = throttleInterval;
+    }
+
+    /***
+     * Schedules the request of a keystroke after the delay chosen by the debounce policy. A pending request of a previous keystroke is dropped
+     * @param request - the request
+     * @param debouncePolicy - the debounce policy
+     */
+    public synchronized void submit(Runnable request, DebouncePolicy debouncePolicy){
+        long now = currentTime();
+        submittedCount.incrementAndGet();
+        cancelPendingRequest();
+
+        long fireTime = now + Math.max(0, debouncePolicy.nextDelay(now));
+        if (throttleInterval > 0 && lastFireTime.get() >= 0){
+            fireTime = Math.max(fireTime, lastFireTime.get() + throttleInterval);
+        }
+
+        PendingRequest scheduledRequest = new PendingRequest(request);
+        queueDepth.incrementAndGet();
+        scheduledRequest.future = executor.schedule(scheduledRequest, fireTime - now, TimeUnit.MILLISECONDS);
+        pendingRequest = scheduledRequest;
+    }
+
+    /***
+     * Drops the pending request, if any
+     */
+    public synchronized void cancel(){
+        cancelPendingRequest();
+    }
+
+    /***
+     * Returns the number of requests waiting for their delay to be over
+     * @return int
+     */
+    public int getQueueDepth(){
+        return queueDepth.get();
+    }
+
+    /***
+     * Returns the number of keystrokes submitted
+     * @return long
+     */
+    public long getSubmittedCount(){
+        return submittedCount.get();
+    }
+
+    /***
+     * Returns the number of keystrokes whose request was dropped before running
+     * @return long
+     */
+    public long getDroppedCount(){
+        return droppedCount.get();
+    }
+
+    /***
+     * Returns the number of requests which ran
+     * @return long
+     */
+    public long getFiredCount(){
+        return firedCount.get();
+    }
+
+    /***
+     * Drops the pending request and stops the executor. The scheduler can not be used afterwards
+     */
+    public void shutdown(){
+        cancel();
+        executor.shutdown();
+    }
+
+    private void cancelPendingRequest(){
+        if (pendingRequest != null && pendingRequest.claim()){
+            pendingRequest.future.cancel(false);
+            queueDepth.decrementAndGet();
+            droppedCount.incrementAndGet();
+        }
+        pendingRequest = null;
+    }
+
+    private static long currentTime(){
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private static ScheduledExecutorService newDefaultExecutor(){
+        final String threadName = "multisearch-keystroke-" + schedulerCounter.incrementAndGet();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /***
+     * A request waiting for its delay to be over. It either runs or is dropped, never both
+     */
+    private class PendingRequest implements Runnable {
+        private final Runnable request;
+        private final AtomicInteger state = new AtomicInteger(0);
+        private Future<?> future;
+
+        private PendingRequest(Runnable request){
+            this.request = request;
+        }
+
+        /***
+         * Marks the request as handled
+         * @return false if it was already run or dropped
+         */
+        private boolean claim(){
+            return state.compareAndSet(0, 1);
+        }
+
+        @Override
+        public void run() {
+            if (!claim()){
+                return;
+            }
+            queueDepth.decrementAndGet();
+            firedCount.incrementAndGet();
+            lastFireTime.set(currentTime());
+            try{
+                request.run();
+            }
+            catch (Exception ex){
+                //The scheduled future would keep the exception without anyone reading it
+                Log.e(KeystrokeScheduler.class.getName(), ex.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.webgeoservices.multisearch.scorers;
+
+import java.util.Arrays;
+
+/***
+ * A compiled Bitap pattern. The alphabet masks are precomputed once as <code>long</code> words so a pattern of any length
+ * can be searched bit-parallel, 64 pattern characters per word, without boxing or map lookups.
+ * Follows the Fuse.js v6.4.6 Bitap search semantics
+ */
+public final class BitapPattern {
+    private static final int WORD_BITS = 64;
+    private static final int ASCII_SIZE = 128;
+
+    private final String pattern;
+    private final int length;
+    private final int words;
+    private final int[] asciiSlots = new int[ASCII_SIZE];
+    private final char[] otherCharacters;
+    private final int[] otherSlots;
+    private final long[] masks;
+
+    /***
+     * The constructor
+     * @param pattern - the (case normalized) pattern to compile
+     */
+    public BitapPattern(String pattern){
+        this.pattern = pattern;
+        this.length = pattern.length();
+        this.words = Math.max(1, (length + WORD_BITS - 1) / WORD_BITS);
+
+        //Assign a slot to every distinct character of the pattern
+        Arrays.fill(asciiSlots, -1);
+        char[] sortedCharacters = pattern.toCharArray();
+        Arrays.sort(sortedCharacters);
+        int slots = 0;
+        int others = 0;
+        char[] distinctOthers = new char[sortedCharacters.length];
+        for (int index = 0; index < sortedCharacters.length; index++){
+            char character = sortedCharacters[index];
+            if (index > 0 && sortedCharacters[index - 1] == character){
+                continue;
+            }
+            if (character < ASCII_SIZE){
+                asciiSlots[character] = slots;
+            }
+            else{
+                distinctOthers[others++] = character;
+            }
+            slots++;
+        }
+        otherCharacters = Arrays.copyOf(distinctOthers, others);
+        otherSlots = new int[others];
+        for (int index = 0; index < others; index++){
+            otherSlots[index] = slots - others + index;
+        }
+
+        //Bit (length - index - 1) is set in the mask of the character found at index
+        masks = new long[slots * words];
+        for (int index = 0; index < length; index++){
+            int bit = length - index - 1;
+            masks[slotOf(pattern.charAt(index)) * words + bit / WORD_BITS] |= 1L << (bit % WORD_BITS);
+        }
+    }
+
+    /***
+     * Returns the pattern
+     * @return String
+     */
+    public String getPattern(){
+        return pattern;
+    }
+
+    /***
+     * Returns the length of the pattern
+     * @return int
+     */
+    public int length(){
+        return length;
+    }
+
+    /***
+     * Searches the pattern in the text. Score of the best match is available through <code>workspace.getScore()</code>
+     * @param text - the (case normalized) text
+     * @param location - expected location of the pattern in the text
+     * @param threshold - At what point does the match algorithm give up
+     * @param options - Bitap options
+     * @param workspace - buffers reused across searches. Must not be shared between threads
+     * @return true if the pattern matched
+     */
+    public boolean search(String text, int location, double threshold, Options options, Workspace workspace){
+        int textLength = text.length();
+        int expectedLocation = Math.max(0, Math.min(location, textLength));
+        double currentThreshold = threshold;
+        int bestLocation = expectedLocation;
+        int index;
+
+        //Get all exact matches, here for speed up
+        while ((index = text.indexOf(pattern, bestLocation)) > -1){
+            double score = options.computeScore(length, 0, index, expectedLocation);
+            currentThreshold = Math.min(score, currentThreshold);
+            bestLocation = index + length;
+        }
+
+        bestLocation = -1;
+        double finalScore = 1;
+        int binMax = length + textLength;
+        int maskWord = (length - 1) / WORD_BITS;
+        long mask = 1L << ((length - 1) % WORD_BITS);
+        boolean hasLastBitArray = false;
+
+        for (int errors = 0; errors < length; errors++){
+            int binMin = 0;
+            int binMid = binMax;
+
+            while (binMin < binMid){
+                double score = options.computeScore(length, errors, expectedLocation + binMid, expectedLocation);
+                if (score <= currentThreshold){
+                    binMin = binMid;
+                }
+                else{
+                    binMax = binMid;
+                }
+                binMid = (binMax - binMin) / 2 + binMin;
+            }
+
+            binMax = binMid;
+
+            int start = Math.max(1, expectedLocation - binMid + 1);
+            int finish = options.findAllMatches ? textLength : Math.min(expectedLocation + binMid, textLength) + length;
+
+            long[] bitArray = workspace.current((finish + 2) * words);
+            long[] lastBitArray = workspace.last;
+            int lastSize = hasLastBitArray ? workspace.lastSize : 0;
+            setLowBits(bitArray, (finish + 1) * words, errors);
+
+            for (int j = finish; j >= start; j--){
+                int currentLocation = j - 1;
+                int maskOffset = currentLocation < textLength ? slotOf(text.charAt(currentLocation)) : -1;
+                int offset = j * words;
+                int nextOffset = offset + words;
+                long carry = 1;
+                long errorCarry = 1;
+
+                for (int word = 0; word < words; word++){
+                    long next = bitArray[nextOffset + word];
+                    long charMatch = maskOffset < 0 ? 0 : masks[maskOffset * words + word];
+                    long value = ((next << 1) | carry) & charMatch;
+                    carry = next >>> (WORD_BITS - 1);
+
+                    if (errors > 0){
+                        long lastNext = nextOffset + word < lastSize ? lastBitArray[nextOffset + word] : 0;
+                        long lastCurrent = offset + word < lastSize ? lastBitArray[offset + word] : 0;
+                        long combined = lastNext | lastCurrent;
+                        value |= (combined << 1) | errorCarry | lastNext;
+                        errorCarry = combined >>> (WORD_BITS - 1);
+                    }
+                    bitArray[offset + word] = value;
+                }
+
+                if ((bitArray[offset + maskWord] & mask) != 0){
+                    finalScore = options.computeScore(length, errors, currentLocation, expectedLocation);
+
+                    if (finalScore <= currentThreshold){
+                        currentThreshold = finalScore;
+                        bestLocation = currentLocation;
+
+                        if (bestLocation <= expectedLocation){
+                            break;
+                        }
+                        start = Math.max(1, 2 * expectedLocation - bestLocation);
+                    }
+                }
+            }
+
+            double score = options.computeScore(length, errors + 1, expectedLocation, expectedLocation);
+            if (score > currentThreshold){
+                break;
+            }
+            workspace.swap((finish + 2) * words);
+            hasLastBitArray = true;
+        }
+        workspace.score = Math.max(0.001, finalScore);
+        return bestLocation >= 0;
+    }
+
+    /***
+     * Returns the mask slot of a character or -1 if the character is not in the pattern
+     */
+    private int slotOf(char character){
+        if (character < ASCII_SIZE){
+            int slot = asciiSlots[character];
+            return slot < 0 ? -1 : slot;
+        }
+        int index = Arrays.binarySearch(otherCharacters, character);
+        return index < 0 ? -1 : otherSlots[index];
+    }
+
+    /***
+     * Sets the lowest <code>count</code> bits of the bit vector starting at offset. Equivalent of <code>(1 &lt;&lt; count) - 1</code>
+     */
+    private void setLowBits(long[] bitArray, int offset, int count){
+        for (int word = 0; word < words; word++){
+            int bits = count - word * WORD_BITS;
+            if (bits >= WORD_BITS){
+                bitArray[offset + word] = -1L;
+            }
+            else if (bits > 0){
+                bitArray[offset + word] = (1L << bits) - 1;
+            }
+            else{
+                bitArray[offset + word] = 0;
+            }
+        }
+    }
+
+    /***
+     * Immutable Bitap options
+     */
+    public static final class Options {
+        private final boolean findAllMatches;
+        private final boolean ignoreLocation;
+        private final int distance;
+
+        /***
+         * The constructor
+         * @param findAllMatches - When true, the matching continues to the end of the text even if a perfect match was found
+         * @param ignoreLocation - When true, the location of the match is ignored while scoring
+         * @param distance - Determines how close the match must be to the expected location
+         */
+        public Options(boolean findAllMatches, boolean ignoreLocation, int distance){
+            this.findAllMatches = findAllMatches;
+            this.ignoreLocation = ignoreLocation;
+            this.distance = distance;
+        }
+
+        /***
+         * Returns true if the location of the match is ignored while scoring
+         * @return boolean
+         */
+        public boolean ignoresLocation(){
+            return ignoreLocation;
+        }
+
+        /***
+         * Computes the score of a match based on errors and location
+         * @param patternLength - length of the pattern
+         * @param errors - number of errors in the match
+         * @param currentLocation - location of the match
+         * @param expectedLocation - expected location of the match
+         * @return the score. 0 is a perfect match and 1 is a complete mismatch
+         */
+        double computeScore(int patternLength, int errors, int currentLocation, int expectedLocation){
+            double accuracy = (double) errors / patternLength;
+            if (ignoreLocation){
+                return accuracy;
+            }
+            int proximity = Math.abs(expectedLocation - currentLocation);
+            if (distance == 0){
+                return proximity > 0 ? 1.0 : accuracy;
+            }
+            return accuracy + (double) proximity / distance;
+        }
+    }
+
+    /***
+     * Bit vector buffers reused across searches to avoid allocating on every candidate
+     */
+    public static final class Workspace {
+        private long[] current = new long[0];
+        private long[] last = new long[0];
+        private int lastSize;
+        private double score;
+
+        /***
+         * Returns the score of the last search
+         * @return double
+         */
+        public double getScore(){
+            return score;
+        }
+
+        private long[] current(int size){
+            if (current.length < size){
+                current = new long[size];
+            }
+            else{
+                Arrays.fill(current, 0, size, 0);
+            }
+            return current;
+        }
+
+        private void swap(int size){
+            long[] previous = last;
+            last = current;
+            lastSize = size;
+            current = previous;
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.webgeoservices.multisearch.scorers;
+
+import android.util.Log;
+
+import com.webgeoservices.multisearch.interfaces.TopKScorable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/***
+ * A pure Java port of the <a href="https://fusejs.io/concepts/scoring-theory.html">Fuse.js</a> Bitap scoring used by <code>FuseScorer</code>.
+ * Produces the same scores and ordering as Fuse.js v6.4.6 without running a Javascript engine
+ * Implements TopKScorable interface
+ */
+public class BitapScorer implements TopKScorable {
+    /***
+     * Maximum pattern length handled by a single Bitap pass in Fuse.js. Longer patterns are split in chunks
+     */
+    public static final int MAX_BITS = 32;
+
+    /***
+     * Equivalent of Javascript's <code>Number.EPSILON</code>
+     */
+    private static final double EPSILON = Math.ulp(1.0);
+
+    /***
+     * Maximum number of candidates kept in the index between two calls
+     */
+    private static final int MAX_INDEXED_CANDIDATES = 512;
+
+    /***
+     * Fields identifying a candidate in the results of the different providers
+     */
+    private static final String[] ID_FIELDS = {"public_id", "place_id", "store_id"};
+
+    /***
+     * Result of the values discarded by the pre-filter
+     */
+    private static final MatchResult NO_MATCH = new MatchResult(false, 1);
+
+    /***
+     * Sorts by ascending score, then by position in the original list like Fuse.js
+     */
+    private static final Comparator<ScoredItem> SCORED_ITEM_COMPARATOR = new Comparator<ScoredItem>() {
+        @Override
+        public int compare(ScoredItem first, ScoredItem second) {
+            if (first.score == second.score){
+                return Integer.compare(first.index, second.index);
+            }
+            return first.score < second.score ? -1 : 1;
+        }
+    };
+
+    private final List<Key> keys = new ArrayList<>();
+    private final Map<String, IndexedCandidate> candidateIndex = new LinkedHashMap<String, IndexedCandidate>(16, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IndexedCandidate> eldest) {
+            return size() > MAX_INDEXED_CANDIDATES;
+        }
+    };
+    private final boolean ignoreFieldNorm;
+    private final boolean isCaseSensitive;
+    private final int location;
+    private final int maxPatternLength;
+    private final BitapPattern.Options options;
+
+    /***
+     * The constructor
+     * @param configuration Fuse.js configuration options. See <a href="https://fusejs.io/api/options.html">here</a> for more.
+     *                      Supported options are <code>keys</code>, <code>findAllMatches</code>, <code>ignoreLocation</code>,
+     *                      <code>ignoreFieldNorm</code>, <code>isCaseSensitive</code>, <code>location</code> and <code>distance</code>.
+     *                      <code>threshold</code> is taken from the <code>fallbackBreakpoint</code> passed to <code>scoreResults</code>.
+     *                      The extra <code>maxPatternLength</code> option sets the length above which the search string is split in chunks.
+     *                      It defaults to Fuse.js' 32 characters; <code>0</code> matches the whole search string at once whatever its length
+     */
+    public BitapScorer(JSONObject configuration){
+        boolean findAllMatches = configuration.optBoolean("findAllMatches",false);
+        boolean ignoreLocation = configuration.optBoolean("ignoreLocation",false);
+        ignoreFieldNorm = configuration.optBoolean("ignoreFieldNorm",false);
+        isCaseSensitive = configuration.optBoolean("isCaseSensitive",false);
+        location = configuration.optInt("location",0);
+        maxPatternLength = configuration.optInt("maxPatternLength",MAX_BITS);
+        options = new BitapPattern.Options(findAllMatches, ignoreLocation, configuration.optInt("distance",100));
+        initializeKeys(configuration.optJSONArray("keys"));
+    }
+
+    /***
+     * Scores and sorts the results based on given search string.
+     * Candidates are preprocessed (case normalization, field norm) once and kept in an index keyed by their id,
+     * so the next keystroke only preprocesses candidates it has not seen yet.
+     * Values sharing too few characters or bigrams with the search string to match under the threshold are discarded before running Bitap
+     * @param data - List of JSONObject (s) which needs to be scored and sorted
+     * @param searchString - Searh string based on which the scoring should take place
+     * @param fallbackBreakpoint - At what point does the match algorithm give up
+     * @return A List of JSONObject (s) which are scored and sorted
+     */
+    @Override
+    public List<JSONObject> scoreResults(List<JSONObject> data, String searchString, float fallbackBreakpoint) {
+        return scoreResults(data, searchString, fallbackBreakpoint, Integer.MAX_VALUE, Float.POSITIVE_INFINITY);
+    }
+
+    /***
+     * Scores the results and returns the <code>limit</code> best ones, sorted.
+     * Best results are kept in a bounded heap. Once it is full, candidates are searched with a threshold lowered to the
+     * score of the worst kept result so the ones that cannot beat it are discarded as early as possible
+     * @param data - List of JSONObject (s) which needs to be scored, sorted
+     * @param searchString - Searh string based on which the scoring should take place
+     * @param fallbackBreakpoint - At what point does the match algorithm give up
+     * @param limit - maximum number of results to return
+     * @param scoreCutoff - results having a score greater than this value are not returned
+     * @return List of at most <code>limit</code> JSONObject (s) which are scored and sorted
+     */
+    @Override
+    public List<JSONObject> scoreResults(List<JSONObject> data, String searchString, float fallbackBreakpoint, int limit, float scoreCutoff) {
+        List<JSONObject> scoredData = new ArrayList<>();
+        String pattern = isCaseSensitive ? searchString : searchString.toLowerCase(Locale.ROOT);
+        List<Chunk> chunks = createChunks(pattern);
+        double threshold = fallbackBreakpoint;
+        BitapPattern.Workspace workspace = new BitapPattern.Workspace();
+
+        if (data == null || chunks.isEmpty() || limit <= 0){
+            return scoredData;
+        }
+        //Worst kept item at the head of the heap
+        PriorityQueue<ScoredItem> bestItems = new PriorityQueue<>(Math.min(limit, Math.max(1, data.size())), Collections.reverseOrder(SCORED_ITEM_COMPARATOR));
+        //Lowering the search threshold is only exact when the score of a candidate is a monotonic function of the errors of a single search
+        boolean canPrune = options.ignoresLocation() && keys.size() == 1 && chunks.size() == 1;
+
+        for (int index = 0; index < data.size(); index++){
+            JSONObject element = data.get(index);
+            if (element == null){
+                continue;
+            }
+            IndexedCandidate candidate = getIndexedCandidate(element);
+            double bound = scoreCutoff;
+            if (bestItems.size() == limit){
+                bound = Math.min(bound, bestItems.peek().score);
+            }
+            double searchThreshold = threshold;
+            if (canPrune && candidate.texts[0].length == 1 && bound < 1){
+                //Slightly widened so rounding never drops a candidate equal to the bound. The exact comparisons below decide
+                searchThreshold = Math.min(threshold, Math.pow(bound, 1 / (keys.get(0).weight * candidate.norms[0][0])) * (1 + 1e-9));
+            }
+
+            double totalScore = 1;
+            boolean hasMatch = false;
+            for (int keyIndex = 0; keyIndex < keys.size(); keyIndex++){
+                for (int valueIndex = 0; valueIndex < candidate.texts[keyIndex].length; valueIndex++){
+                    MatchResult result = searchIn(candidate.texts[keyIndex][valueIndex], candidate.signatures[keyIndex][valueIndex], pattern, chunks, searchThreshold, workspace);
+                    if (result.isMatch){
+                        double score = result.score == 0 ? EPSILON : result.score;
+                        totalScore *= Math.pow(score, keys.get(keyIndex).weight * candidate.norms[keyIndex][valueIndex]);
+                        hasMatch = true;
+                    }
+                }
+            }
+            if (!hasMatch || totalScore > scoreCutoff){
+                continue;
+            }
+            ScoredItem scoredItem = new ScoredItem(index, totalScore);
+            if (bestItems.size() < limit){
+                bestItems.add(scoredItem);
+            }
+            else if (SCORED_ITEM_COMPARATOR.compare(scoredItem, bestItems.peek()) < 0){
+                bestItems.poll();
+                bestItems.add(scoredItem);
+            }
+        }
+
+        List<ScoredItem> scoredItems = new ArrayList<>(bestItems);
+        Collections.sort(scoredItems, SCORED_ITEM_COMPARATOR);
+
+        try{
+            for (ScoredItem scoredItem : scoredItems){
+                JSONObject result = new JSONObject();
+                result.put("item", data.get(scoredItem.index));
+                result.put("refIndex", scoredItem.index);
+                result.put("score", scoredItem.score);
+                scoredData.add(result);
+            }
+            return scoredData;
+        }
+        catch (JSONException ex){
+            Log.e(BitapScorer.class.getName(),ex.toString());
+        }
+        return data;
+    }
+
+    /***
+     * Returns the preprocessed values of the candidate, reusing the ones computed by a previous call when the candidate did not change
+     * @param element - the candidate
+     * @return <code>IndexedCandidate</code> object
+     */
+    private IndexedCandidate getIndexedCandidate(JSONObject element){
+        String[][] values = new String[keys.size()][];
+        for (int keyIndex = 0; keyIndex < keys.size(); keyIndex++){
+            List<String> keyValues = keys.get(keyIndex).getValues(element);
+            values[keyIndex] = keyValues.toArray(new String[0]);
+        }
+        String id = getCandidateId(element);
+        if (id == null){
+            return new IndexedCandidate(values);
+        }
+        IndexedCandidate candidate;
+        synchronized (candidateIndex){
+            candidate = candidateIndex.get(id);
+        }
+        if (candidate != null && Arrays.deepEquals(candidate.values, values)){
+            return candidate;
+        }
+        candidate = new IndexedCandidate(values);
+        synchronized (candidateIndex){
+            candidateIndex.put(id, candidate);
+        }
+        return candidate;
+    }
+
+    /***
+     * Returns the identifier of the candidate or null if it has none
+     * @param element - the candidate
+     * @return String
+     */
+    private static String getCandidateId(JSONObject element){
+        for (String idField : ID_FIELDS){
+            String id = element.optString(idField, null);
+            if (id != null){
+                return idField + ":" + id;
+            }
+        }
+        return null;
+    }
+
+    /***
+     * Parses the <code>keys</code> option. Each key can either be a string path or an object having <code>name</code> and <code>weight</code>.
+     * Like Fuse.js v6.4.6, the weights are used as they are, without normalizing them
+     * @param keysConfiguration - the keys option
+     */
+    private void initializeKeys(JSONArray keysConfiguration){
+        if (keysConfiguration == null){
+            return;
+        }
+        for (int counter = 0; counter < keysConfiguration.length(); counter++){
+            Object keyConfiguration = keysConfiguration.opt(counter);
+            Key key;
+            if (keyConfiguration instanceof JSONObject){
+                double weight = ((JSONObject) keyConfiguration).optDouble("weight",1);
+                if (weight <= 0){
+                    throw new IllegalArgumentException("Property 'weight' in key must be a positive integer");
+                }
+                key = new Key(((JSONObject) keyConfiguration).optString("name"), weight);
+            }
+            else{
+                key = new Key(String.valueOf(keyConfiguration), 1);
+            }
+            keys.add(key);
+        }
+    }
+
+    /***
+     * Splits the search pattern into chunks of <code>maxPatternLength</code> characters the same way Fuse.js does
+     * @param pattern - the (case normalized) search pattern
+     * @return List of chunks
+     */
+    private List<Chunk> createChunks(String pattern){
+        List<Chunk> chunks = new ArrayList<>();
+        int length = pattern.length();
+        if (length == 0){
+            return chunks;
+        }
+        if (maxPatternLength > 0 && length > maxPatternLength){
+            int remainder = length % maxPatternLength;
+            int end = length - remainder;
+            for (int index = 0; index < end; index += maxPatternLength){
+                chunks.add(new Chunk(pattern.substring(index, index + maxPatternLength), index));
+            }
+            if (remainder > 0){
+                chunks.add(new Chunk(pattern.substring(length - maxPatternLength), length - maxPatternLength));
+            }
+        }
+        else{
+            chunks.add(new Chunk(pattern, 0));
+        }
+        return chunks;
+    }
+
+    /***
+     * Matches the pattern against a single field value
+     * @param text - the (case normalized) field value
+     * @param signature - signature of the field value
+     * @param pattern - the (case normalized) search pattern
+     * @param chunks - the pattern chunks
+     * @param threshold - At what point does the match algorithm give up
+     * @param workspace - buffers reused across the values
+     * @return the match result
+     */
+    private MatchResult searchIn(String text, TextSignature signature, String pattern, List<Chunk> chunks, double threshold, BitapPattern.Workspace workspace){
+        if (pattern.equals(text)){
+            return new MatchResult(true, 0);
+        }
+        if (cannotMatch(signature, chunks, threshold)){
+            return NO_MATCH;
+        }
+        boolean hasMatches = false;
+        double totalScore = 0;
+        for (Chunk chunk : chunks){
+            if (chunk.pattern.search(text, location + chunk.startIndex, threshold, options, workspace)){
+                hasMatches = true;
+            }
+            totalScore += workspace.getScore();
+        }
+        return new MatchResult(hasMatches, hasMatches ? totalScore / chunks.size() : 1);
+    }
+
+    /***
+     * Pre-filter run before Bitap. A value matches if any chunk matches, so it is discarded only when no chunk can match
+     * @param signature - signature of the field value
+     * @param chunks - the pattern chunks
+     * @param threshold - At what point does the match algorithm give up
+     * @return true if Bitap can not find a match
+     */
+    private static boolean cannotMatch(TextSignature signature, List<Chunk> chunks, double threshold){
+        for (Chunk chunk : chunks){
+            if (!signature.cannotMatch(chunk.signature, threshold)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /***
+     * Computes the field-length norm of a value, rounded to 3 decimals like Fuse.js
+     * @param value - the field value
+     * @return the norm
+     */
+    private static double fieldNorm(String value){
+        int numberOfTokens = 0;
+        boolean inToken = false;
+        for (int index = 0; index < value.length(); index++){
+            if (value.charAt(index) == ' '){
+                inToken = false;
+            }
+            else if (!inToken){
+                inToken = true;
+                numberOfTokens++;
+            }
+        }
+        return Math.round(1 / Math.sqrt(Math.max(1, numberOfTokens)) * 1000) / 1000.0;
+    }
+
+    /***
+     * A search key with its weight
+     */
+    private static class Key {
+        private final String[] path;
+        private final double weight;
+
+        private Key(String name, double weight){
+            this.path = name.split("\\.");
+            this.weight = weight;
+        }
+
+        /***
+         * Returns the non blank string values of the key in the given object
+         * @param element - the JSONObject to read
+         * @return List of values
+         */
+        private List<String> getValues(JSONObject element){
+            List<String> values = new ArrayList<>();
+            collectValues(element, 0, values);
+            return values;
+        }
+
+        private void collectValues(Object object, int pathIndex, List<String> values){
+            if (object == null || object == JSONObject.NULL){
+                return;
+            }
+            if (object instanceof JSONArray){
+                JSONArray array = (JSONArray) object;
+                for (int counter = 0; counter < array.length(); counter++){
+                    collectValues(array.opt(counter), pathIndex, values);
+                }
+                return;
+            }
+            if (pathIndex == path.length){
+                if (object instanceof String || object instanceof Number || object instanceof Boolean){
+                    String value = object.toString();
+                    if (!value.trim().isEmpty()){
+                        values.add(value);
+                    }
+                }
+                return;
+            }
+            if (object instanceof JSONObject){
+                collectValues(((JSONObject) object).opt(path[pathIndex]), pathIndex + 1, values);
+            }
+        }
+    }
+
+    /***
+     * Preprocessed values of a candidate: the raw values of every key, their case normalized text, their signature and their field norm
+     */
+    private class IndexedCandidate {
+        private final String[][] values;
+        private final String[][] texts;
+        private final TextSignature[][] signatures;
+        private final double[][] norms;
+
+        private IndexedCandidate(String[][] values){
+            this.values = values;
+            this.texts = new String[values.length][];
+            this.signatures = new TextSignature[values.length][];
+            this.norms = new double[values.length][];
+            for (int keyIndex = 0; keyIndex < values.length; keyIndex++){
+                texts[keyIndex] = new String[values[keyIndex].length];
+                signatures[keyIndex] = new TextSignature[values[keyIndex].length];
+                norms[keyIndex] = new double[values[keyIndex].length];
+                for (int valueIndex = 0; valueIndex < values[keyIndex].length; valueIndex++){
+                    String value = values[keyIndex][valueIndex];
+                    texts[keyIndex][valueIndex] = isCaseSensitive ? value : value.toLowerCase(Locale.ROOT);
+                    signatures[keyIndex][valueIndex] = new TextSignature(texts[keyIndex][valueIndex]);
+                    norms[keyIndex][valueIndex] = ignoreFieldNorm ? 1 : fieldNorm(value);
+                }
+            }
+        }
+    }
+
+    /***
+     * A chunk of the search pattern compiled as a <code>BitapPattern</code>
+     */
+    private static class Chunk {
+        private final BitapPattern pattern;
+        private final TextSignature signature;
+        private final int startIndex;
+
+        private Chunk(String pattern, int startIndex){
+            this.pattern = new BitapPattern(pattern);
+            this.signature = new TextSignature(pattern);
+            this.startIndex = startIndex;
+        }
+    }
+
+    /***
+     * Result of matching a pattern against a text
+     */
+    private static class MatchResult {
+        private final boolean isMatch;
+        private final double score;
+
+        private MatchResult(boolean isMatch, double score){
+            this.isMatch = isMatch;
+            this.score = score;
+        }
+    }
+
+    /***
+     * Index and score of a matched item
+     */
+    private static class ScoredItem {
+        private final int index;
+        private final double score;
+
+        private ScoredItem(int index, double score){
+            this.index = index;
+            this.score = score;
+        }
+    }
+}
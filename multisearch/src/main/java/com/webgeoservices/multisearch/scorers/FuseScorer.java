@@ -16,31 +16,54 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /***
- * A singleton class that uses <a href="https://fusejs.io/concepts/scoring-theory.html">Fuse.js</a> Javascript library to score the results given by different providers
+ * A class that uses <a href="https://fusejs.io/concepts/scoring-theory.html">Fuse.js</a> Javascript library to score the results given by different providers.
+ * An instance owns its own Javascript context and must not be used by two threads at the same time.
+ * Use <code>ScorerPool</code> to score from several threads.
+ * FuseScorer is an opt-in fallback of the default <code>BitapScorer</code>: the library only compiles against LiquidCore,
+ * so an application using it must add the <code>com.github.LiquidPlayer:LiquidCore:0.6.2</code> dependency itself
  * Implements Scorable interface
  */
 public class FuseScorer implements Scorable {
     private final Context context;
     private final JSContext jsContext;
-    private static FuseScorer instance = null;
+    private static final Map<String, FuseScorer> instances = new HashMap<>();
+    private static String fuseSource = null;
     private final JSONObject configuration;
+    private double currentThreshold;
+    private boolean returnIndicesOnly = true;
 
     /***
-     * Returns an instance of FuseScorer class
+     * Returns the shared instance of FuseScorer class for the given configuration.
+     * Instances are registered per configuration so different configurations never share a Javascript context
      * @param context - the context
      * @param configuration Fuse.js configuration options. See <a href="https://fusejs.io/api/options.html">here</a> for more
      * @return
      */
-    public static FuseScorer getInstance(Context context, JSONObject configuration){
+    public static synchronized FuseScorer getInstance(Context context, JSONObject configuration){
+        String key = configuration.toString();
+        FuseScorer instance = instances.get(key);
         if (instance == null){
             instance = new FuseScorer(context,configuration);
+            instances.put(key,instance);
         }
         return instance;
     }
 
+    /***
+     * Returns a new instance of FuseScorer class having its own Javascript context
+     * @param context - the context
+     * @param configuration Fuse.js configuration options. See <a href="https://fusejs.io/api/options.html">here</a> for more
+     * @return
+     */
+    public static FuseScorer newInstance(Context context, JSONObject configuration){
+        return new FuseScorer(context,configuration);
+    }
+
     /***
      * The constructor
      * @param context
@@ -49,10 +72,22 @@ public class FuseScorer implements Scorable {
     private FuseScorer(Context context, JSONObject configuration){
         this.context = context.getApplicationContext();
         this.configuration = configuration;
+        this.currentThreshold = configuration.optDouble("threshold",0.6);
         jsContext = new JSContext();
         initializeFuseJS();
     }
 
+    /***
+     * Specifies if Fuse.js should only return the index and score of the matched items.
+     * When true (default), only the fields listed in the <code>keys</code> option are sent to the Javascript context
+     * and the scores are attached back to the original <code>JSONObject</code>s.
+     * When false, whole items are copied to the Javascript context and parsed back from the JSON returned by Fuse.js
+     * @param returnIndicesOnly - true to only exchange indices and scores with the Javascript context
+     */
+    public void setReturnIndicesOnly(boolean returnIndicesOnly){
+        this.returnIndicesOnly = returnIndicesOnly;
+    }
+
     /***
      * Scores and sorts the results based on given search string
      * @param data - List of JSONObject (s) which needs to be scored and sorted
@@ -62,6 +97,9 @@ public class FuseScorer implements Scorable {
      */
     @Override
     public List<JSONObject> scoreResults(List<JSONObject> data, String searchString, float fallbackBreakpoint) {
+        if (returnIndicesOnly){
+            return scoreIndices(data,searchString,fallbackBreakpoint);
+        }
         JSValue jsValue;
         JSONArray dataList = new JSONArray();
         List<JSONObject> scroredData;
@@ -69,8 +107,7 @@ public class FuseScorer implements Scorable {
             dataList.put(element);
         }
 
-        jsContext.evaluateScript("configuration.threshold = " + fallbackBreakpoint + ";");
-        jsContext.property("configuration");
+        updateThreshold(fallbackBreakpoint);
 
         jsContext.property("dataList",dataList);
         jsContext.property("dataList");
@@ -97,6 +134,84 @@ public class FuseScorer implements Scorable {
         return data;
     }
 
+    /***
+     * Scores the results by sending only the scored fields to Fuse.js and receiving <code>[refIndex, score]</code> pairs
+     * @param data - List of JSONObject (s) which needs to be scored and sorted
+     * @param searchString - Searh string based on which the scoring should take place
+     * @param fallbackBreakpoint - At what point does the match algorithm give up
+     * @return A List of JSONObject (s) which are scored and sorted
+     */
+    private List<JSONObject> scoreIndices(List<JSONObject> data, String searchString, float fallbackBreakpoint){
+        JSValue jsValue;
+        JSONArray dataList = new JSONArray();
+        JSONArray scores;
+        List<JSONObject> scoredData = new ArrayList<>();
+        List<String> keyNames = getKeyNames();
+
+        try{
+            for(JSONObject element: data){
+                JSONObject projection = new JSONObject();
+                for (String keyName: keyNames){
+                    projection.putOpt(keyName,element.opt(keyName));
+                }
+                dataList.put(projection);
+            }
+
+            updateThreshold(fallbackBreakpoint);
+            jsContext.property("dataList",dataList);
+            jsContext.property("searchString",searchString);
+
+            jsContext.evaluateScript("fuse = new Fuse(dataList, configuration);");
+            jsContext.evaluateScript("result = fuse.search(searchString).map(function(r){ return [r.refIndex, r.score]; });");
+
+            jsValue = jsContext.property("result");
+            scores = new JSONArray(jsValue.toJSON());
+            for(int counter=0;counter<scores.length();counter++){
+                JSONArray score = scores.getJSONArray(counter);
+                JSONObject result = new JSONObject();
+                result.put("item",data.get(score.getInt(0)));
+                result.put("refIndex",score.getInt(0));
+                result.put("score",score.getDouble(1));
+                scoredData.add(result);
+            }
+            return scoredData;
+        }
+        catch (JSONException ex){
+            Log.e(FuseScorer.class.getName(),ex.toString());
+        }
+        return data;
+    }
+
+    /***
+     * Updates the threshold of the Fuse.js configuration. The script is only evaluated when the threshold changes,
+     * so a scorer created with the provider's <code>fallbackBreakpoint</code> as threshold never re-evaluates it
+     * @param threshold - the new threshold
+     */
+    private void updateThreshold(double threshold){
+        if (threshold != currentThreshold){
+            jsContext.evaluateScript("configuration.threshold = " + threshold + ";");
+            currentThreshold = threshold;
+        }
+    }
+
+    /***
+     * Returns the top level field names referenced by the <code>keys</code> option
+     * @return List of field names
+     */
+    private List<String> getKeyNames(){
+        List<String> keyNames = new ArrayList<>();
+        JSONArray keys = configuration.optJSONArray("keys");
+        if (keys == null){
+            return keyNames;
+        }
+        for (int counter=0;counter<keys.length();counter++){
+            Object key = keys.opt(counter);
+            String keyName = key instanceof JSONObject ? ((JSONObject) key).optString("name") : String.valueOf(key);
+            keyNames.add(keyName.split("\\.")[0]);
+        }
+        return keyNames;
+    }
+
     /***
      * initializes Fuse.js
      */
@@ -109,24 +224,31 @@ public class FuseScorer implements Scorable {
         jsContext.property("dataList",null);
         jsContext.property("fuse",null);
         jsContext.property("result",null);
-
-        Log.d(FuseScorer.class.getName(),"Here");
     }
 
     /***
-     * Reads from an asset file and returns it's content in string format
+     * Reads from an asset file and returns it's content in string format.
+     * The content is read once per process and shared by all instances
      * @return File content
      */
     private String getFuseSourceFromAssets(){
+        synchronized (FuseScorer.class){
+            if (fuseSource != null){
+                return fuseSource;
+            }
+        }
         BufferedReader reader = null;
         StringBuilder stringBuilder=new StringBuilder();
         try {
             reader = new BufferedReader(new InputStreamReader(context.getAssets().open("fuse_prod.js"), StandardCharsets.UTF_8));
-            // do reading, usually loop until end of file reading
-            String mLine;
-            while ((mLine = reader.readLine()) != null) {
-                //process line
-                stringBuilder.append(mLine);
+            // read the whole file in chunks instead of line by line
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                stringBuilder.append(buffer, 0, read);
+            }
+            synchronized (FuseScorer.class){
+                fuseSource = stringBuilder.toString();
             }
         } catch (IOException e) {
             //log the exception
@@ -0,0 +1,204 @@
+package com.webgeoservices.multisearch.scorers;
+
+import android.util.Log;
+
+import com.webgeoservices.multisearch.interfaces.Scorable;
+import com.webgeoservices.multisearch.interfaces.TopKScorable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/***
+ * Scores large candidate lists on several cores.
+ * The list is split in partitions which are scored by the wrapped scorer on a fork-join pool, then the sorted partitions are merged.
+ * Lists smaller than the sequential threshold are scored on the calling thread.
+ * The pool is provided by the owner of the scorer, e.g. <code>MultiSearch</code>, so scoring never competes with the common fork-join pool of the application.
+ * The wrapped scorer must be thread safe and score every candidate independently of the others, like <code>BitapScorer</code>
+ * Implements TopKScorable interface
+ */
+public class ParallelScorer implements TopKScorable {
+    /***
+     * Default number of candidates below which the list is scored on the calling thread
+     */
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 256;
+
+    private final Scorable scorer;
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+
+    /***
+     * The constructor. Uses the default sequential threshold
+     * @param scorer - the thread safe scorer scoring each partition
+     * @param pool - the fork-join pool running the partitions
+     */
+    public ParallelScorer(Scorable scorer, ForkJoinPool pool){
+        this(scorer, pool, DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    /***
+     * The constructor
+     * @param scorer - the thread safe scorer scoring each partition
+     * @param pool - the fork-join pool running the partitions
+     * @param sequentialThreshold - number of candidates below which the list is scored on the calling thread. Also the minimum partition size
+     */
+    public ParallelScorer(Scorable scorer, ForkJoinPool pool, int sequentialThreshold){
+        if (pool == null){
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        if (sequentialThreshold <= 0){
+            throw new IllegalArgumentException("Sequential threshold must be greater than 0");
+        }
+        this.scorer = scorer;
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /***
+     * Scores and sorts the results based on given search string
+     * @param data - List of JSONObject (s) which needs to be scored and sorted
+     * @param searchString - Searh string based on which the scoring should take place
+     * @param fallbackBreakpoint - At what point does the match algorithm give up
+     * @return A List of JSONObject (s) which are scored and sorted
+     */
+    @Override
+    public List<JSONObject> scoreResults(List<JSONObject> data, String searchString, float fallbackBreakpoint) {
+        return scoreResults(data, searchString, fallbackBreakpoint, Integer.MAX_VALUE, Float.POSITIVE_INFINITY);
+    }
+
+    /***
+     * Scores the results and returns the <code>limit</code> best ones, sorted. Each partition only keeps its own <code>limit</code> best results
+     * @param data - List of JSONObject (s) which needs to be scored, sorted
+     * @param searchString - Searh string based on which the scoring should take place
+     * @param fallbackBreakpoint - At what point does the match algorithm give up
+     * @param limit - maximum number of results to return
+     * @param scoreCutoff - results having a score greater than this value are not returned
+     * @return List of at most <code>limit</code> JSONObject (s) which are scored and sorted
+     */
+    @Override
+    public List<JSONObject> scoreResults(List<JSONObject> data, String searchString, float fallbackBreakpoint, int limit, float scoreCutoff) {
+        if (data == null || data.size() < sequentialThreshold * 2){
+            return scorePartition(data, searchString, fallbackBreakpoint, limit, scoreCutoff);
+        }
+        int partitionSize = Math.max(sequentialThreshold, (data.size() + pool.getParallelism() - 1) / pool.getParallelism());
+        return pool.invoke(new PartitionTask(data, 0, data.size(), partitionSize, searchString, fallbackBreakpoint, limit, scoreCutoff));
+    }
+
+    @Override
+    public void prewarm() {
+        scorer.prewarm();
+    }
+
+    /***
+     * Scores a partition with the wrapped scorer
+     */
+    private List<JSONObject> scorePartition(List<JSONObject> data, String searchString, float fallbackBreakpoint, int limit, float scoreCutoff){
+        if (scorer instanceof TopKScorable){
+            return ((TopKScorable) scorer).scoreResults(data, searchString, fallbackBreakpoint, limit, scoreCutoff);
+        }
+        List<JSONObject> scoredData = scorer.scoreResults(data, searchString, fallbackBreakpoint);
+        if (limit == Integer.MAX_VALUE && scoreCutoff == Float.POSITIVE_INFINITY){
+            return scoredData;
+        }
+        List<JSONObject> result = new ArrayList<>();
+        for (JSONObject scoredItem : scoredData){
+            if (result.size() == limit){
+                break;
+            }
+            if (scoredItem.optDouble("score", 0) <= scoreCutoff){
+                result.add(scoredItem);
+            }
+        }
+        return result;
+    }
+
+    /***
+     * Merges two sorted partitions. Ties are broken by <code>refIndex</code> so the order is the same as a sequential scoring
+     * @param first - the sorted results of the first partition
+     * @param second - the sorted results of the second partition
+     * @param limit - maximum number of results to keep
+     * @return the merged results
+     */
+    private static List<JSONObject> merge(List<JSONObject> first, List<JSONObject> second, int limit){
+        List<JSONObject> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        int firstIndex = 0;
+        int secondIndex = 0;
+        while (merged.size() < limit && (firstIndex < first.size() || secondIndex < second.size())){
+            if (secondIndex == second.size()){
+                merged.add(first.get(firstIndex++));
+            }
+            else if (firstIndex == first.size()){
+                merged.add(second.get(secondIndex++));
+            }
+            else if (compare(first.get(firstIndex), second.get(secondIndex)) <= 0){
+                merged.add(first.get(firstIndex++));
+            }
+            else{
+                merged.add(second.get(secondIndex++));
+            }
+        }
+        return merged;
+    }
+
+    private static int compare(JSONObject first, JSONObject second){
+        int result = Double.compare(first.optDouble("score", 0), second.optDouble("score", 0));
+        if (result != 0){
+            return result;
+        }
+        return Integer.compare(first.optInt("refIndex"), second.optInt("refIndex"));
+    }
+
+    /***
+     * Splits the candidates in two halves until they are small enough to be scored, then merges the sorted halves
+     */
+    private class PartitionTask extends RecursiveTask<List<JSONObject>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<JSONObject> data;
+        private final int start;
+        private final int end;
+        private final int partitionSize;
+        private final String searchString;
+        private final float fallbackBreakpoint;
+        private final int limit;
+        private final float scoreCutoff;
+
+        private PartitionTask(List<JSONObject> data, int start, int end, int partitionSize, String searchString, float fallbackBreakpoint, int limit, float scoreCutoff){
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            this.partitionSize = partitionSize;
+            this.searchString = searchString;
+            this.fallbackBreakpoint = fallbackBreakpoint;
+            this.limit = limit;
+            this.scoreCutoff = scoreCutoff;
+        }
+
+        @Override
+        protected List<JSONObject> compute() {
+            if (end - start < partitionSize * 2){
+                List<JSONObject> scoredData = scorePartition(data.subList(start, end), searchString, fallbackBreakpoint, limit, scoreCutoff);
+                //refIndex is relative to the partition
+                try{
+                    for (JSONObject scoredItem : scoredData){
+                        scoredItem.put("refIndex", scoredItem.getInt("refIndex") + start);
+                    }
+                }
+                catch (JSONException ex){
+                    Log.e(ParallelScorer.class.getName(),ex.toString());
+                }
+                return scoredData;
+            }
+            int middle = start + (end - start) / 2;
+            PartitionTask firstHalf = new PartitionTask(data, start, middle, partitionSize, searchString, fallbackBreakpoint, limit, scoreCutoff);
+            PartitionTask secondHalf = new PartitionTask(data, middle, end, partitionSize, searchString, fallbackBreakpoint, limit, scoreCutoff);
+            firstHalf.fork();
+            List<JSONObject> secondResult = secondHalf.compute();
+            return merge(firstHalf.join(), secondResult, limit);
+        }
+    }
+}
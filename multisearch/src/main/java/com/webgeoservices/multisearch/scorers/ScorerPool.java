@@ -0,0 +1,205 @@
+package com.webgeoservices.multisearch.scorers;
+
+import android.util.Log;
+
+import com.webgeoservices.multisearch.interfaces.Scorable;
+import com.webgeoservices.multisearch.interfaces.ScorableFactory;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***
+ * A bounded pool of thread-confined scorers.
+ * Every worker owns a single thread and a scorer created on that thread, so scorers holding a Javascript context (like <code>FuseScorer</code>)
+ * are never used by two threads at the same time. Callers wait in a queue until a worker is idle
+ * Implements Scorable interface
+ */
+public class ScorerPool implements Scorable {
+    private static final AtomicInteger poolCounter = new AtomicInteger();
+
+    private final List<Worker> workers = new ArrayList<>();
+    private final BlockingQueue<Worker> idleWorkers;
+    private final AtomicInteger waitingCallers = new AtomicInteger();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong totalWaitTime = new AtomicLong();
+    private final AtomicLong maxWaitTime = new AtomicLong();
+    private final AtomicLong totalScoringTime = new AtomicLong();
+
+    /***
+     * The constructor
+     * @param size - number of workers (and scorers) in the pool
+     * @param factory - factory which creates the scorer of each worker. It is invoked on the worker thread
+     */
+    public ScorerPool(int size, ScorableFactory factory){
+        if (size <= 0){
+            throw new IllegalArgumentException("Pool size must be greater than 0");
+        }
+        int poolNumber = poolCounter.incrementAndGet();
+        idleWorkers = new LinkedBlockingQueue<>(size);
+        for (int counter = 0; counter < size; counter++){
+            Worker worker = new Worker(factory, "multisearch-scorer-" + poolNumber + "-" + counter);
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+    }
+
+    /***
+     * Scores and sorts the results on the first idle worker. Blocks until a worker is available and the scoring is complete
+     * @param data - List of JSONObject (s) which needs to be scored and sorted
+     * @param searchString - Searh string based on which the scoring should take place
+     * @param fallbackBreakpoint - At what point does the match algorithm give up
+     * @return A List of JSONObject (s) which are scored and sorted
+     * @throws IllegalStateException - if the scorer failed or the caller was interrupted. The unscored results are never returned
+     */
+    @Override
+    public List<JSONObject> scoreResults(final List<JSONObject> data, final String searchString, final float fallbackBreakpoint) {
+        Worker worker;
+        long waitStart = System.nanoTime();
+        submittedCount.incrementAndGet();
+        waitingCallers.incrementAndGet();
+        try{
+            worker = idleWorkers.take();
+        }
+        catch (InterruptedException ex){
+            failedCount.incrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a scorer", ex);
+        }
+        finally {
+            waitingCallers.decrementAndGet();
+        }
+        recordWaitTime(System.nanoTime() - waitStart);
+
+        long scoringStart = System.nanoTime();
+        try{
+            List<JSONObject> result = worker.submit(new Callable<List<JSONObject>>() {
+                @Override
+                public List<JSONObject> call() {
+                    return worker.getScorer().scoreResults(data, searchString, fallbackBreakpoint);
+                }
+            });
+            completedCount.incrementAndGet();
+            return result;
+        }
+        catch (ExecutionException ex){
+            failedCount.incrementAndGet();
+            Log.e(ScorerPool.class.getName(),ex.getCause().toString());
+            throw new IllegalStateException("Scoring failed: " + ex.getCause().getMessage(), ex.getCause());
+        }
+        catch (InterruptedException ex){
+            failedCount.incrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scoring", ex);
+        }
+        finally {
+            totalScoringTime.addAndGet(System.nanoTime() - scoringStart);
+            idleWorkers.add(worker);
+        }
+    }
+
+    /***
+     * Creates the scorer of every worker on its thread and waits until they are all ready
+     */
+    @Override
+    public void prewarm() {
+        List<Future<Scorable>> warmUps = new ArrayList<>();
+        for (final Worker worker : workers){
+            warmUps.add(worker.executor.submit(new Callable<Scorable>() {
+                @Override
+                public Scorable call() {
+                    Scorable scorer = worker.getScorer();
+                    scorer.prewarm();
+                    return scorer;
+                }
+            }));
+        }
+        for (Future<Scorable> warmUp : warmUps){
+            try{
+                warmUp.get();
+            }
+            catch (ExecutionException ex){
+                Log.e(ScorerPool.class.getName(),ex.toString());
+            }
+            catch (InterruptedException ex){
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /***
+     * Returns a snapshot of the pool metrics
+     * @return <code>ScorerPoolMetrics</code> object
+     */
+    public ScorerPoolMetrics getMetrics(){
+        return new ScorerPoolMetrics(workers.size(), idleWorkers.size(), waitingCallers.get(),
+                submittedCount.get(), completedCount.get(), failedCount.get(),
+                totalWaitTime.get() / 1000000, maxWaitTime.get() / 1000000, totalScoringTime.get() / 1000000);
+    }
+
+    /***
+     * Stops all the worker threads. The pool can not be used afterwards
+     */
+    public void shutdown(){
+        for (Worker worker : workers){
+            worker.executor.shutdown();
+        }
+    }
+
+    private void recordWaitTime(long waitTime){
+        totalWaitTime.addAndGet(waitTime);
+        long currentMax;
+        do {
+            currentMax = maxWaitTime.get();
+        } while (waitTime > currentMax && !maxWaitTime.compareAndSet(currentMax, waitTime));
+    }
+
+    /***
+     * A single thread owning its own scorer
+     */
+    private static class Worker {
+        private final ExecutorService executor;
+        private final ScorableFactory factory;
+        private Scorable scorer;
+
+        private Worker(ScorableFactory factory, final String threadName){
+            this.factory = factory;
+            this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        /***
+         * Returns the scorer of this worker, creating it on first use. Must only be called from the worker thread
+         */
+        private Scorable getScorer(){
+            if (scorer == null){
+                scorer = factory.create();
+            }
+            return scorer;
+        }
+
+        private <T> T submit(Callable<T> task) throws ExecutionException, InterruptedException {
+            return executor.submit(task).get();
+        }
+    }
+}
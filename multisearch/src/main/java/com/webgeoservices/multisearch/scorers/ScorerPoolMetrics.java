@@ -0,0 +1,101 @@
+package com.webgeoservices.multisearch.scorers;
+
+/***
+ * Snapshot of the metrics of a <code>ScorerPool</code>
+ */
+public class ScorerPoolMetrics {
+    private final int poolSize;
+    private final int idleWorkers;
+    private final int queueDepth;
+    private final long submittedCount;
+    private final long completedCount;
+    private final long failedCount;
+    private final long totalWaitTime;
+    private final long maxWaitTime;
+    private final long totalScoringTime;
+
+    ScorerPoolMetrics(int poolSize, int idleWorkers, int queueDepth, long submittedCount, long completedCount,
+                      long failedCount, long totalWaitTime, long maxWaitTime, long totalScoringTime){
+        this.poolSize = poolSize;
+        this.idleWorkers = idleWorkers;
+        this.queueDepth = queueDepth;
+        this.submittedCount = submittedCount;
+        this.completedCount = completedCount;
+        this.failedCount = failedCount;
+        this.totalWaitTime = totalWaitTime;
+        this.maxWaitTime = maxWaitTime;
+        this.totalScoringTime = totalScoringTime;
+    }
+
+    /***
+     * Number of workers in the pool
+     * @return int
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /***
+     * Number of workers which are not scoring
+     * @return int
+     */
+    public int getIdleWorkers() {
+        return idleWorkers;
+    }
+
+    /***
+     * Number of callers waiting for a worker
+     * @return int
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /***
+     * Number of scoring requests received by the pool
+     * @return long
+     */
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    /***
+     * Number of scoring requests which completed successfully
+     * @return long
+     */
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /***
+     * Number of scoring requests which failed or were interrupted
+     * @return long
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /***
+     * Total time in ms spent by callers waiting for a worker
+     * @return long
+     */
+    public long getTotalWaitTime() {
+        return totalWaitTime;
+    }
+
+    /***
+     * Longest time in ms a caller waited for a worker
+     * @return long
+     */
+    public long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    /***
+     * Total time in ms spent scoring on the workers
+     * @return long
+     */
+    public long getTotalScoringTime() {
+        return totalScoringTime;
+    }
+}
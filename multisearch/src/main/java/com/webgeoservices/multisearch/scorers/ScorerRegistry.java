@@ -0,0 +1,54 @@
+package com.webgeoservices.multisearch.scorers;
+
+import com.webgeoservices.multisearch.interfaces.Scorable;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Registry of scorers keyed by <code>ScoringConfiguration</code>.
+ * Each configuration gets its own precompiled scorer which is created once and reused by every provider sharing that configuration
+ */
+public class ScorerRegistry {
+    private final ConcurrentHashMap<ScoringConfiguration, Scorable> scorers = new ConcurrentHashMap<>();
+    private final Factory factory;
+
+    /***
+     * Creates a scorer for a given configuration
+     */
+    public interface Factory {
+        /***
+         * Creates a new <code>Scorable</code> object for the configuration
+         * @param configuration - the scoring configuration
+         * @return Scorable
+         */
+        Scorable create(ScoringConfiguration configuration);
+    }
+
+    /***
+     * The constructor
+     * @param factory - factory which creates the scorer of a configuration the first time it is requested
+     */
+    public ScorerRegistry(Factory factory){
+        this.factory = factory;
+    }
+
+    /***
+     * Returns the scorer of the configuration, creating it on first use
+     * @param configuration - the scoring configuration
+     * @return Scorable
+     */
+    public Scorable getScorer(ScoringConfiguration configuration){
+        Scorable scorer = scorers.get(configuration);
+        if (scorer != null){
+            return scorer;
+        }
+        return scorers.computeIfAbsent(configuration, factory::create);
+    }
+
+    /***
+     * Removes all the scorers from the registry
+     */
+    public void clear(){
+        scorers.clear();
+    }
+}
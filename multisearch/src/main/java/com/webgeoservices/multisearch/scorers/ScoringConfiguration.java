@@ -0,0 +1,226 @@
+package com.webgeoservices.multisearch.scorers;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Immutable scoring configuration (keys, weights, threshold and Fuse.js matching options).
+ * Two configurations having the same values are equal, so it can be used as a key to share precompiled scorers.
+ * The threshold is not part of the equality: scorers match with the <code>fallbackBreakpoint</code> passed to <code>scoreResults</code>,
+ * so configurations which only differ by their threshold share the same scorer
+ */
+public class ScoringConfiguration {
+    private final List<String> keyNames;
+    private final List<Float> keyWeights;
+    private final float threshold;
+    private final boolean findAllMatches;
+    private final boolean ignoreLocation;
+    private final boolean ignoreFieldNorm;
+    private final int maxPatternLength;
+
+    /***
+     * Private constructor used by the <code>Builder</code> class to construct ScoringConfiguration object
+     * @param builder
+     */
+    private ScoringConfiguration(Builder builder){
+        //The default key is not added to the builder, which can still be given keys and built again
+        Map<String, Float> keys = builder.keys.isEmpty() ? Collections.singletonMap("description", 1f) : builder.keys;
+        this.keyNames = Collections.unmodifiableList(new ArrayList<>(keys.keySet()));
+        this.keyWeights = Collections.unmodifiableList(new ArrayList<>(keys.values()));
+        this.threshold = builder.threshold;
+        this.findAllMatches = builder.findAllMatches;
+        this.ignoreLocation = builder.ignoreLocation;
+        this.ignoreFieldNorm = builder.ignoreFieldNorm;
+        this.maxPatternLength = builder.maxPatternLength;
+    }
+
+    /***
+     * Returns the names of the scored fields
+     * @return List of key names
+     */
+    public List<String> getKeyNames() {
+        return keyNames;
+    }
+
+    /***
+     * Returns the weights of the scored fields, in the same order as <code>getKeyNames()</code>
+     * @return List of weights
+     */
+    public List<Float> getKeyWeights() {
+        return keyWeights;
+    }
+
+    /***
+     * Returns the threshold at which the match algorithm gives up. It is only the initial Fuse.js option,
+     * scorers use the <code>fallbackBreakpoint</code> passed to <code>scoreResults</code>
+     * @return float
+     */
+    public float getThreshold() {
+        return threshold;
+    }
+
+    /***
+     * Returns the length above which <code>BitapScorer</code> splits the search string in chunks. 0 means the search string is never split
+     * @return int
+     */
+    public int getMaxPatternLength() {
+        return maxPatternLength;
+    }
+
+    /***
+     * Returns the configuration as Fuse.js options. The extra <code>maxPatternLength</code> option is only read by <code>BitapScorer</code>. See <a href="https://fusejs.io/api/options.html">here</a> for more
+     * @return <code>JSONObject</code>
+     */
+    public JSONObject toFuseOptions(){
+        JSONObject fuseConfiguration = new JSONObject();
+        JSONArray keys = new JSONArray();
+        try{
+            for (int index = 0; index < keyNames.size(); index++){
+                JSONObject key = new JSONObject();
+                key.put("name", keyNames.get(index));
+                key.put("weight", keyWeights.get(index));
+                keys.put(key);
+            }
+            fuseConfiguration.put("includeScore",true);
+            fuseConfiguration.put("findAllMatches",findAllMatches);
+            fuseConfiguration.put("ignoreLocation",ignoreLocation);
+            fuseConfiguration.put("ignoreFieldNorm",ignoreFieldNorm);
+            fuseConfiguration.put("threshold",threshold);
+            fuseConfiguration.put("maxPatternLength",maxPatternLength);
+            fuseConfiguration.put("keys",keys);
+        }
+        catch (JSONException ex){
+            Log.e(ScoringConfiguration.class.getName(),ex.toString());
+        }
+        return fuseConfiguration;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other){
+            return true;
+        }
+        if (!(other instanceof ScoringConfiguration)){
+            return false;
+        }
+        ScoringConfiguration that = (ScoringConfiguration) other;
+        return findAllMatches == that.findAllMatches
+                && ignoreLocation == that.ignoreLocation
+                && ignoreFieldNorm == that.ignoreFieldNorm
+                && maxPatternLength == that.maxPatternLength
+                && keyNames.equals(that.keyNames)
+                && keyWeights.equals(that.keyWeights);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = keyNames.hashCode();
+        result = 31 * result + keyWeights.hashCode();
+        result = 31 * result + (findAllMatches ? 1 : 0);
+        result = 31 * result + (ignoreLocation ? 1 : 0);
+        result = 31 * result + (ignoreFieldNorm ? 1 : 0);
+        result = 31 * result + maxPatternLength;
+        return result;
+    }
+
+    /***
+     * A builder class which is used to create ScoringConfiguration object.
+     * Defaults match the options used by MultiSearch: <code>findAllMatches</code>, <code>ignoreLocation</code> and <code>ignoreFieldNorm</code>
+     * are true, threshold is 0.6 and the <code>description</code> field is scored.
+     * Unlike Fuse.js, long search strings are matched at once rather than in chunks of 32 characters
+     */
+    public static class Builder{
+        private final Map<String, Float> keys = new LinkedHashMap<>();
+        private float threshold = 0.6f;
+        private boolean findAllMatches = true;
+        private boolean ignoreLocation = true;
+        private boolean ignoreFieldNorm = true;
+        private int maxPatternLength = 0;
+
+        /***
+         * Adds a field to score
+         * @param name - the field name. Nested fields can be separated by a dot
+         * @param weight - weight of the field. Must be greater than 0
+         * @return
+         */
+        public Builder key(String name, float weight){
+            if (weight <= 0){
+                throw new RuntimeException("Key weight must be greater than 0");
+            }
+            keys.put(name, weight);
+            return this;
+        }
+
+        /***
+         * At what point does the match algorithm give up. 0 requires a perfect match and 1 matches anything
+         * @param threshold - the threshold
+         * @return
+         */
+        public Builder threshold(float threshold){
+            this.threshold = threshold;
+            return this;
+        }
+
+        /***
+         * When true, the matching continues to the end of the text even if a perfect match was found
+         * @param findAllMatches
+         * @return
+         */
+        public Builder findAllMatches(boolean findAllMatches){
+            this.findAllMatches = findAllMatches;
+            return this;
+        }
+
+        /***
+         * When true, the location of the match is ignored while scoring
+         * @param ignoreLocation
+         * @return
+         */
+        public Builder ignoreLocation(boolean ignoreLocation){
+            this.ignoreLocation = ignoreLocation;
+            return this;
+        }
+
+        /***
+         * When true, the length of the field is ignored while scoring
+         * @param ignoreFieldNorm
+         * @return
+         */
+        public Builder ignoreFieldNorm(boolean ignoreFieldNorm){
+            this.ignoreFieldNorm = ignoreFieldNorm;
+            return this;
+        }
+
+        /***
+         * Length above which <code>BitapScorer</code> splits the search string in chunks which are matched separately, then averages their scores.
+         * 0 (the default) matches the whole search string at once, whatever its length, so a long search string is scored on all its characters.
+         * 32 reproduces the chunking of Fuse.js
+         * @param maxPatternLength - the length, or 0 to never split the search string
+         * @return
+         */
+        public Builder maxPatternLength(int maxPatternLength){
+            if (maxPatternLength < 0){
+                throw new RuntimeException("maxPatternLength must be greater than or equal to 0");
+            }
+            this.maxPatternLength = maxPatternLength;
+            return this;
+        }
+
+        /***
+         * Builds and returns <code>ScoringConfiguration</code> object based on the provided parameters
+         * @return the ScoringConfiguration object
+         */
+        public ScoringConfiguration build(){
+            return new ScoringConfiguration(this);
+        }
+    }
+}
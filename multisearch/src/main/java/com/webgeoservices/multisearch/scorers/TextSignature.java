@@ -0,0 +1,108 @@
+package com.webgeoservices.multisearch.scorers;
+
+import java.util.Arrays;
+
+/***
+ * Character bag and bigram bag of a (case normalized) text, kept as sorted arrays.
+ * Comparing the signatures of a pattern and a text gives a lower bound of the number of errors Bitap needs to match
+ * the pattern anywhere in the text, so candidates which cannot match can be discarded without running Bitap
+ */
+public final class TextSignature {
+    private final int length;
+    private final char[] characters;
+    private final int[] bigrams;
+
+    /***
+     * The constructor
+     * @param text - the (case normalized) text
+     */
+    public TextSignature(String text){
+        this.length = text.length();
+        this.characters = text.toCharArray();
+        Arrays.sort(characters);
+        this.bigrams = new int[Math.max(0, length - 1)];
+        for (int index = 0; index < bigrams.length; index++){
+            bigrams[index] = (text.charAt(index) << 16) | text.charAt(index + 1);
+        }
+        Arrays.sort(bigrams);
+    }
+
+    /***
+     * Returns the length of the text
+     * @return int
+     */
+    public int length(){
+        return length;
+    }
+
+    /***
+     * Returns true if the pattern can not match the text with an error ratio lower than or equal to the threshold.
+     * Every error removes at most one character and two bigrams of the pattern, so matching a pattern of length m needs at least
+     * <code>m - sharedCharacters</code> and <code>(m - 1 - sharedBigrams) / 2</code> errors
+     * @param pattern - signature of the pattern
+     * @param threshold - At what point does the match algorithm give up
+     * @return boolean
+     */
+    public boolean cannotMatch(TextSignature pattern, double threshold){
+        int patternLength = pattern.length;
+        if (patternLength == 0){
+            return false;
+        }
+        //Length ratio: the missing characters are errors
+        if ((double) (patternLength - length) / patternLength > threshold){
+            return true;
+        }
+        int characterErrors = patternLength - sharedCount(pattern.characters, characters);
+        if ((double) characterErrors / patternLength > threshold){
+            return true;
+        }
+        int bigramErrors = (pattern.bigrams.length - sharedCount(pattern.bigrams, bigrams) + 1) / 2;
+        return (double) bigramErrors / patternLength > threshold;
+    }
+
+    /***
+     * Returns the size of the multiset intersection of two sorted arrays
+     */
+    private static int sharedCount(char[] first, char[] second){
+        int shared = 0;
+        int firstIndex = 0;
+        int secondIndex = 0;
+        while (firstIndex < first.length && secondIndex < second.length){
+            if (first[firstIndex] == second[secondIndex]){
+                shared++;
+                firstIndex++;
+                secondIndex++;
+            }
+            else if (first[firstIndex] < second[secondIndex]){
+                firstIndex++;
+            }
+            else{
+                secondIndex++;
+            }
+        }
+        return shared;
+    }
+
+    /***
+     * Returns the size of the multiset intersection of two sorted arrays
+     */
+    private static int sharedCount(int[] first, int[] second){
+        int shared = 0;
+        int firstIndex = 0;
+        int secondIndex = 0;
+        while (firstIndex < first.length && secondIndex < second.length){
+            if (first[firstIndex] == second[secondIndex]){
+                shared++;
+                firstIndex++;
+                secondIndex++;
+            }
+            else if (first[firstIndex] < second[secondIndex]){
+                firstIndex++;
+            }
+            else{
+                secondIndex++;
+            }
+        }
+        return shared;
+    }
+}
@@ -0,0 +1,89 @@
+package com.webgeoservices.multisearch.utils;
+
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/***
+ * Cancellation signal shared by the stages of a request.
+ * Stages check it between each other and register the actions (like cancelling an API call) to run when the request is cancelled.
+ * Thread safe
+ */
+public class CancellationToken {
+    private volatile boolean cancelled = false;
+    private boolean detached = false;
+    private final List<Runnable> cancelActions = new CopyOnWriteArrayList<>();
+
+    /***
+     * Cancels the request and runs the registered cancel actions. Does nothing if the request was already cancelled
+     */
+    public void cancel(){
+        synchronized (this){
+            if (cancelled){
+                return;
+            }
+            cancelled = true;
+            if (detached){
+                return;
+            }
+        }
+        for (Runnable cancelAction : cancelActions){
+            runSafely(cancelAction);
+        }
+        cancelActions.clear();
+    }
+
+    /***
+     * Returns true if the request was cancelled
+     * @return boolean
+     */
+    public boolean isCancelled(){
+        return cancelled;
+    }
+
+    /***
+     * Throws a <code>CancellationException</code> if the request was cancelled
+     */
+    public void throwIfCancelled(){
+        if (cancelled){
+            throw new CancellationException("Request was cancelled");
+        }
+    }
+
+    /***
+     * Registers an action to run when the request is cancelled. The action runs immediately if the request is already cancelled
+     * @param cancelAction - the action
+     */
+    public void onCancel(Runnable cancelAction){
+        synchronized (this){
+            if (detached){
+                return;
+            }
+            if (!cancelled){
+                cancelActions.add(cancelAction);
+                return;
+            }
+        }
+        runSafely(cancelAction);
+    }
+
+    /***
+     * Drops the registered cancel actions and ignores the ones registered afterwards, so the work already started is not interrupted when the request is cancelled.
+     * The request can still be cancelled and its stages still stop before their next step
+     */
+    public synchronized void detach(){
+        detached = true;
+        cancelActions.clear();
+    }
+
+    private static void runSafely(Runnable cancelAction){
+        try{
+            cancelAction.run();
+        }
+        catch (Exception ex){
+            Log.e(CancellationToken.class.getName(),ex.toString());
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.webgeoservices.multisearch.utils;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * A persistent cache of the details payloads, keyed by provider, configuration and id.
+ * Payloads are appended to a log file and located through an in-memory index, which is rebuilt by reading the log the first time the cache is used.
+ * A newer payload of a key supersedes the older one. Once the log exceeds the maximum size, it is compacted:
+ * only the latest payloads which did not expire are kept, and the oldest ones are dropped until the log fits in three quarters of the maximum size.
+ * Entries store the time they were written, so each provider can apply its own time to live when reading them.
+ * I/O errors are logged and handled like a missing entry.
+ * Thread safe
+ */
+public class DetailsDiskCache {
+    /***
+     * Default maximum size of the log file, in bytes
+     */
+    public static final long DEFAULT_MAX_SIZE = 1024 * 1024;
+
+    /***
+     * Entries older than this are dropped during compaction, whatever the time to live of their provider
+     */
+    public static final long MAX_TTL = 30L * 24 * 60 * 60 * 1000;
+
+    private static final String LOG_FILE_NAME = "multisearch-details.log";
+    private static final int RECORD_HEADER_SIZE = 4 + 8 + 4;
+
+    private final File directory;
+    private final long maxSize;
+    private final Map<String, IndexEntry> index = new HashMap<>();
+    private RandomAccessFile log;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /***
+     * The constructor. The log file is limited to <code>DEFAULT_MAX_SIZE</code> bytes
+     * @param directory - the directory of the log file, usually <code>context.getCacheDir()</code>
+     */
+    public DetailsDiskCache(File directory){
+        this(directory, DEFAULT_MAX_SIZE);
+    }
+
+    /***
+     * The constructor. The log file is only opened the first time the cache is used
+     * @param directory - the directory of the log file, usually <code>context.getCacheDir()</code>
+     * @param maxSize - maximum size of the log file, in bytes
+     */
+    public DetailsDiskCache(File directory, long maxSize){
+        if (maxSize <= 0){
+            throw new IllegalArgumentException("maxSize must be greater than 0");
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /***
+     * Returns the payload of the key if it was written less than <code>ttl</code> ms ago
+     * @param key - the key, made of the provider type, its configuration and the id
+     * @param ttl - time to live of the payload, in ms
+     * @return the payload or null if it is not cached or expired
+     */
+    public synchronized JSONObject get(String key, long ttl){
+        if (ttl <= 0 || !open()){
+            return null;
+        }
+        IndexEntry entry = index.get(key);
+        if (entry == null || System.currentTimeMillis() - entry.storedAt > ttl){
+            missCount++;
+            return null;
+        }
+        try{
+            byte[] payload = new byte[entry.payloadLength];
+            log.seek(entry.payloadOffset);
+            log.readFully(payload);
+            JSONObject result = new JSONObject(new String(payload, StandardCharsets.UTF_8));
+            hitCount++;
+            return result;
+        }
+        catch (IOException | JSONException ex){
+            Log.e(DetailsDiskCache.class.getName(), ex.toString());
+            index.remove(key);
+            missCount++;
+            return null;
+        }
+    }
+
+    /***
+     * Appends the payload of the key to the log. Compacts the log if it exceeds the maximum size
+     * @param key - the key, made of the provider type, its configuration and the id
+     * @param payload - the details payload
+     */
+    public synchronized void put(String key, JSONObject payload){
+        if (!open()){
+            return;
+        }
+        try{
+            append(log, key, payload.toString().getBytes(StandardCharsets.UTF_8), System.currentTimeMillis(), index);
+            if (log.length() > maxSize){
+                compact();
+            }
+        }
+        catch (IOException ex){
+            Log.e(DetailsDiskCache.class.getName(), ex.toString());
+        }
+    }
+
+    /***
+     * Removes all the cached payloads
+     */
+    public synchronized void clear(){
+        if (!open()){
+            return;
+        }
+        try{
+            log.setLength(0);
+        }
+        catch (IOException ex){
+            Log.e(DetailsDiskCache.class.getName(), ex.toString());
+        }
+        index.clear();
+    }
+
+    /***
+     * Returns the number of payloads read from the cache
+     * @return long
+     */
+    public synchronized long getHitCount(){
+        return hitCount;
+    }
+
+    /***
+     * Returns the number of payloads not found in the cache or expired
+     * @return long
+     */
+    public synchronized long getMissCount(){
+        return missCount;
+    }
+
+    /***
+     * Returns the size of the log file, in bytes
+     * @return long
+     */
+    public synchronized long getSize(){
+        try{
+            return open() ? log.length() : 0;
+        }
+        catch (IOException ex){
+            return 0;
+        }
+    }
+
+    /***
+     * Opens the log file and rebuilds the index, if not done yet
+     * @return false if the log file can not be opened
+     */
+    private boolean open(){
+        if (log != null){
+            return true;
+        }
+        try{
+            if (!directory.exists() && !directory.mkdirs()){
+                throw new IOException("Can not create " + directory);
+            }
+            log = new RandomAccessFile(new File(directory, LOG_FILE_NAME), "rw");
+            long validLength = readIndex(log, index);
+            if (validLength < log.length()){ //Drop a record which was partially written
+                log.setLength(validLength);
+            }
+            return true;
+        }
+        catch (IOException ex){
+            Log.e(DetailsDiskCache.class.getName(), ex.toString());
+            log = null;
+            index.clear();
+            return false;
+        }
+    }
+
+    /***
+     * Rewrites the log with the latest payloads which did not expire, dropping the oldest ones until it fits in three quarters of the maximum size
+     */
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, IndexEntry>> liveEntries = new ArrayList<>();
+        long liveSize = 0;
+        for (Map.Entry<String, IndexEntry> entry : index.entrySet()){
+            if (now - entry.getValue().storedAt <= MAX_TTL){
+                liveEntries.add(entry);
+                liveSize += entry.getValue().recordLength();
+            }
+        }
+        Collections.sort(liveEntries, (first, second) -> Long.compare(first.getValue().storedAt, second.getValue().storedAt));
+        int firstKept = 0;
+        while (firstKept < liveEntries.size() && liveSize > maxSize * 3 / 4){
+            liveSize -= liveEntries.get(firstKept++).getValue().recordLength();
+        }
+
+        File logFile = new File(directory, LOG_FILE_NAME);
+        File compactedFile = new File(directory, LOG_FILE_NAME + ".tmp");
+        Map<String, IndexEntry> compactedIndex = new HashMap<>();
+        try (RandomAccessFile compactedLog = new RandomAccessFile(compactedFile, "rw")){
+            compactedLog.setLength(0);
+            for (int entryIndex = firstKept; entryIndex < liveEntries.size(); entryIndex++){
+                Map.Entry<String, IndexEntry> entry = liveEntries.get(entryIndex);
+                byte[] payload = new byte[entry.getValue().payloadLength];
+                log.seek(entry.getValue().payloadOffset);
+                log.readFully(payload);
+                append(compactedLog, entry.getKey(), payload, entry.getValue().storedAt, compactedIndex);
+            }
+        }
+        log.close();
+        log = null;
+        if (!compactedFile.renameTo(logFile)){
+            index.clear();
+            compactedFile.delete();
+            logFile.delete();
+            throw new IOException("Can not replace " + logFile);
+        }
+        log = new RandomAccessFile(logFile, "rw");
+        index.clear();
+        index.putAll(compactedIndex);
+    }
+
+    /***
+     * Appends a record at the end of the file and indexes it.
+     * A record is made of the key length, the write time, the payload length, the key and the payload
+     */
+    private static void append(RandomAccessFile file, String key, byte[] payload, long storedAt, Map<String, IndexEntry> fileIndex) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long recordOffset = file.length();
+        file.seek(recordOffset);
+        file.writeInt(keyBytes.length);
+        file.writeLong(storedAt);
+        file.writeInt(payload.length);
+        file.write(keyBytes);
+        file.write(payload);
+        fileIndex.put(key, new IndexEntry(recordOffset + RECORD_HEADER_SIZE + keyBytes.length, payload.length, keyBytes.length, storedAt));
+    }
+
+    /***
+     * Indexes the records of the file. Later records of a key supersede the earlier ones
+     * @return the length of the complete records
+     */
+    private static long readIndex(RandomAccessFile file, Map<String, IndexEntry> fileIndex) throws IOException {
+        long length = file.length();
+        long offset = 0;
+        file.seek(0);
+        try{
+            while (offset + RECORD_HEADER_SIZE <= length){
+                int keyLength = file.readInt();
+                long storedAt = file.readLong();
+                int payloadLength = file.readInt();
+                if (keyLength < 0 || payloadLength < 0 || offset + RECORD_HEADER_SIZE + keyLength + payloadLength > length){
+                    break;
+                }
+                byte[] keyBytes = new byte[keyLength];
+                file.readFully(keyBytes);
+                long payloadOffset = offset + RECORD_HEADER_SIZE + keyLength;
+                fileIndex.put(new String(keyBytes, StandardCharsets.UTF_8), new IndexEntry(payloadOffset, payloadLength, keyLength, storedAt));
+                offset = payloadOffset + payloadLength;
+                file.seek(offset);
+            }
+        }
+        catch (EOFException ex){
+            //The last record is incomplete
+        }
+        return offset;
+    }
+
+    /***
+     * Location of the latest payload of a key in the log
+     */
+    private static class IndexEntry {
+        private final long payloadOffset;
+        private final int payloadLength;
+        private final int keyLength;
+        private final long storedAt;
+
+        private IndexEntry(long payloadOffset, int payloadLength, int keyLength, long storedAt){
+            this.payloadOffset = payloadOffset;
+            this.payloadLength = payloadLength;
+            this.keyLength = keyLength;
+            this.storedAt = storedAt;
+        }
+
+        private long recordLength(){
+            return RECORD_HEADER_SIZE + keyLength + payloadLength;
+        }
+    }
+}
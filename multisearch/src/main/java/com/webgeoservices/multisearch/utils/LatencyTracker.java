@@ -0,0 +1,77 @@
+package com.webgeoservices.multisearch.utils;
+
+import java.util.Arrays;
+
+/***
+ * Keeps the latest latencies of a provider in a ring buffer and computes their percentiles.
+ * Thread safe
+ */
+public class LatencyTracker {
+    /***
+     * Default number of latencies kept
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    /***
+     * Number of latencies needed before a percentile is available
+     */
+    public static final int MIN_SAMPLES = 8;
+
+    private final long[] samples;
+    private int count = 0;
+    private int next = 0;
+
+    /***
+     * The constructor. Keeps the latest <code>DEFAULT_CAPACITY</code> latencies
+     */
+    public LatencyTracker(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /***
+     * The constructor
+     * @param capacity - number of latest latencies kept
+     */
+    public LatencyTracker(int capacity){
+        if (capacity < MIN_SAMPLES){
+            throw new IllegalArgumentException("Capacity must be at least " + MIN_SAMPLES);
+        }
+        samples = new long[capacity];
+    }
+
+    /***
+     * Records a latency
+     * @param latency - the latency in ms
+     */
+    public synchronized void record(long latency){
+        samples[next] = latency;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    /***
+     * Returns the number of latencies currently kept
+     * @return int
+     */
+    public synchronized int getSampleCount(){
+        return count;
+    }
+
+    /***
+     * Returns the latency below which the given fraction of the recorded latencies fall
+     * @param percentile - the percentile, between 0 and 1. For example 0.95 for the 95th percentile
+     * @return the latency in ms or -1 if less than <code>MIN_SAMPLES</code> latencies were recorded
+     */
+    public long getPercentile(double percentile){
+        long[] sortedSamples;
+        synchronized (this){
+            if (count < MIN_SAMPLES){
+                return -1;
+            }
+            sortedSamples = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(sortedSamples);
+        int index = (int) Math.ceil(percentile * sortedSamples.length) - 1;
+        return sortedSamples[Math.max(0, Math.min(index, sortedSamples.length - 1))];
+    }
+}
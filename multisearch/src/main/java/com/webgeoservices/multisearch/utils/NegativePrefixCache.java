@@ -0,0 +1,393 @@
+package com.webgeoservices.multisearch.utils;
+
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * A cache of the search strings for which a provider returned no result.
+ * Prefix based autocomplete APIs do not return any result for the inputs extending such a search string either,
+ * so an input is known to have no result as soon as one of its prefixes is cached.
+ * Prefixes are stored in a trie, so looking up all the prefixes of an input only walks its characters once, and a prefix replaces the cached strings extending it.
+ * Prefixes are stored exactly: a Bloom filter would be smaller but its false positives would hide the results of inputs which have some.
+ * When full, the oldest prefix is evicted. Prefixes older than the time to live are ignored.
+ * The prefixes can be persisted in a file, so they are reused by the next sessions. The file is rewritten on a background thread,
+ * at most once every <code>SAVE_DELAY</code> ms. I/O errors are logged and the cache then only lives in memory.
+ * Thread safe
+ */
+public class NegativePrefixCache {
+    /***
+     * Default maximum number of cached prefixes
+     */
+    public static final int DEFAULT_MAX_PREFIXES = 256;
+
+    /***
+     * Default time to live of a cached prefix, in ms
+     */
+    public static final long DEFAULT_TTL = TimeUnit.DAYS.toMillis(1);
+
+    /***
+     * Delay between a change of the prefixes and the rewrite of the file, in ms. The changes made meanwhile are written at once
+     */
+    public static final long SAVE_DELAY = 2000;
+
+    private static ScheduledExecutorService saveExecutor;
+
+    private final int maxPrefixes;
+    private final long ttl;
+    private final File file;
+    private final Node root = new Node();
+    //Cached prefixes in the order they were stored, oldest first
+    private final LinkedHashMap<String, Long> prefixes = new LinkedHashMap<>();
+    private final Object fileLock = new Object();
+    private boolean loaded;
+    private boolean saveScheduled = false;
+    private long hitCount = 0;
+
+    /***
+     * The constructor. The prefixes are only kept in memory
+     * @param maxPrefixes - maximum number of cached prefixes. 0 disables the cache
+     * @param ttl - time to live of a cached prefix, in ms
+     */
+    public NegativePrefixCache(int maxPrefixes, long ttl){
+        this(maxPrefixes, ttl, null);
+    }
+
+    /***
+     * The constructor. The file is only read the first time the cache is used
+     * @param maxPrefixes - maximum number of cached prefixes. 0 disables the cache
+     * @param ttl - time to live of a cached prefix, in ms
+     * @param file - the file the prefixes are persisted in, or null to keep them in memory only
+     */
+    public NegativePrefixCache(int maxPrefixes, long ttl, File file){
+        if (maxPrefixes < 0){
+            throw new IllegalArgumentException("maxPrefixes must be greater than or equal to 0");
+        }
+        if (ttl <= 0){
+            throw new IllegalArgumentException("ttl must be greater than 0");
+        }
+        this.maxPrefixes = maxPrefixes;
+        this.ttl = ttl;
+        this.file = file;
+        this.loaded = file == null;
+    }
+
+    /***
+     * Checks if the search string, or one of its prefixes, is known to have no result
+     * @param searchString - the normalized search string
+     * @return true if the API does not need to be called
+     */
+    public synchronized boolean containsPrefixOf(String searchString){
+        if (!hasPrefixOf(searchString)){
+            return false;
+        }
+        hitCount++;
+        return true;
+    }
+
+    /***
+     * Remembers that the search string has no result. Nothing is stored if one of its prefixes is already cached.
+     * The cached search strings extending it are removed, since it answers them
+     * @param searchString - the normalized search string
+     */
+    public synchronized void put(String searchString){
+        if (searchString.isEmpty() || hasPrefixOf(searchString)){
+            return;
+        }
+        Node node = root;
+        for (int index = 0; index < searchString.length(); index++){
+            node = node.getOrCreateChild(searchString.charAt(index));
+        }
+        //An expired entry is moved to the end of the eviction order
+        prefixes.remove(searchString);
+        List<String> extensions = new ArrayList<>();
+        collectPrefixes(node, extensions);
+        for (String extension : extensions){
+            prefixes.remove(extension);
+        }
+        node.children = null;
+        node.storedAt = System.currentTimeMillis();
+        prefixes.put(searchString, node.storedAt);
+        Iterator<String> oldest = prefixes.keySet().iterator();
+        while (prefixes.size() > maxPrefixes){
+            String evicted = oldest.next();
+            oldest.remove();
+            removeFromTrie(evicted);
+        }
+        scheduleSave();
+    }
+
+    /***
+     * Removes all the cached prefixes
+     */
+    public synchronized void clear(){
+        load();
+        prefixes.clear();
+        root.children = null;
+        root.storedAt = -1;
+        scheduleSave();
+    }
+
+    /***
+     * Returns the number of cached prefixes, including the expired ones which were not evicted yet
+     * @return int
+     */
+    public synchronized int size(){
+        load();
+        return prefixes.size();
+    }
+
+    /***
+     * Returns the number of search strings answered by the cache
+     * @return long
+     */
+    public synchronized long getHitCount(){
+        return hitCount;
+    }
+
+    /***
+     * Writes the pending changes to the file right away, e.g. before the application stops. Does nothing if the prefixes are only kept in memory
+     */
+    public void flush(){
+        if (file == null){
+            return;
+        }
+        synchronized (this){
+            if (!saveScheduled){
+                return;
+            }
+        }
+        save();
+    }
+
+    /***
+     * Looks for a prefix of the search string which did not expire
+     */
+    private boolean hasPrefixOf(String searchString){
+        if (maxPrefixes == 0){
+            return false;
+        }
+        load();
+        long now = System.currentTimeMillis();
+        Node node = root;
+        for (int index = 0; index < searchString.length() && node != null; index++){
+            node = node.getChild(searchString.charAt(index));
+            if (node != null && node.storedAt >= 0 && now - node.storedAt <= ttl){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /***
+     * Collects the prefixes stored below a node
+     */
+    private static void collectPrefixes(Node node, List<String> collected){
+        if (node.children == null){
+            return;
+        }
+        for (Node child : node.children.values()){
+            if (child.storedAt >= 0){
+                collected.add(child.prefix());
+            }
+            collectPrefixes(child, collected);
+        }
+    }
+
+    /***
+     * Removes a prefix from the trie, along with the nodes which do not lead to any other prefix
+     */
+    private void removeFromTrie(String prefix){
+        Node node = root;
+        for (int index = 0; index < prefix.length() && node != null; index++){
+            node = node.getChild(prefix.charAt(index));
+        }
+        if (node == null){
+            return;
+        }
+        node.storedAt = -1;
+        while (node.parent != null && node.storedAt < 0 && (node.children == null || node.children.isEmpty())){
+            node.parent.children.remove(node.character);
+            node = node.parent;
+        }
+    }
+
+    /***
+     * Reads the persisted prefixes, if not done yet. Expired prefixes are dropped
+     */
+    private void load(){
+        if (loaded){
+            return;
+        }
+        loaded = true;
+        if (!file.exists()){
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<String, Long> persisted = new LinkedHashMap<>();
+        synchronized (fileLock){
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))){
+                String line;
+                while ((line = reader.readLine()) != null){
+                    int separator = line.indexOf('\t');
+                    if (separator <= 0){
+                        continue;
+                    }
+                    try{
+                        long storedAt = Long.parseLong(line.substring(0, separator));
+                        if (now - storedAt <= ttl){
+                            persisted.put(line.substring(separator + 1), storedAt);
+                        }
+                    }
+                    catch (NumberFormatException ex){
+                        Log.e(NegativePrefixCache.class.getName(), ex.toString());
+                    }
+                }
+            }
+            catch (IOException ex){
+                Log.e(NegativePrefixCache.class.getName(), ex.toString());
+            }
+        }
+        for (Map.Entry<String, Long> prefix : persisted.entrySet()){
+            put(prefix.getKey());
+            Node node = root;
+            for (int index = 0; index < prefix.getKey().length() && node != null; index++){
+                node = node.getChild(prefix.getKey().charAt(index));
+            }
+            if (node != null && node.storedAt >= 0){
+                node.storedAt = prefix.getValue();
+                prefixes.put(prefix.getKey(), prefix.getValue());
+            }
+        }
+        saveScheduled = false; //The file already holds these prefixes
+    }
+
+    /***
+     * Schedules the rewrite of the file, unless one is already pending
+     */
+    private void scheduleSave(){
+        if (file == null || saveScheduled){
+            return;
+        }
+        saveScheduled = true;
+        getSaveExecutor().schedule(this::save, SAVE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    /***
+     * Rewrites the persisted prefixes, one per line preceded by the time it was stored.
+     * The file is replaced once completely written, so it is never left partially written
+     */
+    private void save(){
+        List<Map.Entry<String, Long>> snapshot;
+        synchronized (this){
+            if (!saveScheduled){
+                return;
+            }
+            saveScheduled = false;
+            snapshot = new ArrayList<>(new LinkedHashMap<>(prefixes).entrySet());
+        }
+        synchronized (fileLock){
+            File directory = file.getParentFile();
+            File tempFile = new File(directory, file.getName() + ".tmp");
+            try{
+                if (directory != null && !directory.exists() && !directory.mkdirs()){
+                    throw new IOException("Can not create " + directory);
+                }
+                try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))){
+                    for (Map.Entry<String, Long> prefix : snapshot){
+                        writer.write(prefix.getValue() + "\t" + prefix.getKey());
+                        writer.newLine();
+                    }
+                }
+                if (!tempFile.renameTo(file)){
+                    throw new IOException("Can not replace " + file);
+                }
+            }
+            catch (IOException ex){
+                Log.e(NegativePrefixCache.class.getName(), ex.toString());
+                tempFile.delete();
+            }
+        }
+    }
+
+    /***
+     * Returns the single daemon thread shared by the caches to write their files
+     * @return ScheduledExecutorService
+     */
+    private static synchronized ScheduledExecutorService getSaveExecutor(){
+        if (saveExecutor == null){
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "multisearch-negative-cache");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setKeepAliveTime(30, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            saveExecutor = executor;
+        }
+        return saveExecutor;
+    }
+
+    /***
+     * A character of the trie. A node whose <code>storedAt</code> is set ends a cached prefix
+     */
+    private static class Node {
+        private final Node parent;
+        private final char character;
+        private Map<Character, Node> children;
+        private long storedAt = -1;
+
+        private Node(){
+            this(null, '\0');
+        }
+
+        private Node(Node parent, char character){
+            this.parent = parent;
+            this.character = character;
+        }
+
+        private Node getChild(char childCharacter){
+            return children == null ? null : children.get(childCharacter);
+        }
+
+        private Node getOrCreateChild(char childCharacter){
+            if (children == null){
+                children = new HashMap<>(4);
+            }
+            Node child = children.get(childCharacter);
+            if (child == null){
+                child = new Node(this, childCharacter);
+                children.put(childCharacter, child);
+            }
+            return child;
+        }
+
+        /***
+         * Returns the prefix ending at this node
+         */
+        private String prefix(){
+            StringBuilder prefix = new StringBuilder();
+            for (Node node = this; node.parent != null; node = node.parent){
+                prefix.append(node.character);
+            }
+            return prefix.reverse().toString();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.webgeoservices.multisearch.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * A size and time bounded cache of API responses.
+ * When full, the least recently used entry is evicted. Entries older than the time to live are not returned by <code>get</code>.
+ * They can still be returned by <code>getStale</code> during the stale time, so they can be used while they are revalidated, then they are evicted.
+ * Counts the hits, stale hits, misses and evictions.
+ * Thread safe
+ * @param <V> - type of the cached responses
+ */
+public class ResponseCache<V> {
+    /***
+     * Default maximum number of cached responses
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    /***
+     * Default time to live of a cached response, in ms
+     */
+    public static final long DEFAULT_TTL = TimeUnit.MINUTES.toMillis(10);
+
+    private final int maxEntries;
+    private final long ttl;
+    private final long staleTtl;
+    private final LinkedHashMap<String, CacheEntry<V>> entries;
+    private long hitCount = 0;
+    private long staleHitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /***
+     * The constructor. Keeps at most <code>DEFAULT_MAX_ENTRIES</code> responses for <code>DEFAULT_TTL</code>
+     */
+    public ResponseCache(){
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL);
+    }
+
+    /***
+     * The constructor. Expired responses are not kept
+     * @param maxEntries - maximum number of cached responses. 0 disables the cache
+     * @param ttl - time to live of a cached response, in ms
+     */
+    public ResponseCache(int maxEntries, long ttl){
+        this(maxEntries, ttl, 0);
+    }
+
+    /***
+     * The constructor
+     * @param maxEntries - maximum number of cached responses. 0 disables the cache
+     * @param ttl - time to live of a cached response, in ms
+     * @param staleTtl - time an expired response can still be returned by <code>getStale</code>, in ms
+     */
+    public ResponseCache(int maxEntries, long ttl, long staleTtl){
+        if (maxEntries < 0){
+            throw new IllegalArgumentException("maxEntries must be greater than or equal to 0");
+        }
+        if (ttl <= 0){
+            throw new IllegalArgumentException("ttl must be greater than 0");
+        }
+        if (staleTtl < 0){
+            throw new IllegalArgumentException("staleTtl must be greater than or equal to 0");
+        }
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.staleTtl = staleTtl;
+        this.entries = new LinkedHashMap<String, CacheEntry<V>>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry<V>> eldest) {
+                if (size() > ResponseCache.this.maxEntries){
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /***
+     * Returns the cached response of the key and marks it as recently used
+     * @param key - the normalized request
+     * @return the response or null if it is not cached or expired
+     */
+    public synchronized V get(String key){
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null){
+            missCount++;
+            return null;
+        }
+        long age = currentTime() - entry.storedAt;
+        if (age > ttl){
+            if (age > ttl + staleTtl){
+                entries.remove(key);
+                evictionCount++;
+            }
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    /***
+     * Returns the cached response of the key, even if it expired less than the stale time ago.
+     * Meant to be called after <code>get</code> missed, so a stale response is only counted as a stale hit
+     * @param key - the normalized request
+     * @return the response or null if it is not cached or expired for more than the stale time
+     */
+    public synchronized V getStale(String key){
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null || currentTime() - entry.storedAt > ttl + staleTtl){
+            return null;
+        }
+        staleHitCount++;
+        return entry.value;
+    }
+
+    /***
+     * Caches the response of the key. The least recently used response is evicted if the cache is full
+     * @param key - the normalized request
+     * @param value - the response
+     */
+    public synchronized void put(String key, V value){
+        if (maxEntries == 0){
+            return;
+        }
+        entries.put(key, new CacheEntry<>(value, currentTime()));
+    }
+
+    /***
+     * Removes all the cached responses. Counters are kept
+     */
+    public synchronized void clear(){
+        entries.clear();
+    }
+
+    /***
+     * Returns the number of cached responses, including the expired ones which were not evicted yet
+     * @return int
+     */
+    public synchronized int size(){
+        return entries.size();
+    }
+
+    /***
+     * Returns the number of requests answered by the cache
+     * @return long
+     */
+    public synchronized long getHitCount(){
+        return hitCount;
+    }
+
+    /***
+     * Returns the number of expired responses returned by <code>getStale</code>
+     * @return long
+     */
+    public synchronized long getStaleHitCount(){
+        return staleHitCount;
+    }
+
+    /***
+     * Returns the number of requests not found in the cache or expired
+     * @return long
+     */
+    public synchronized long getMissCount(){
+        return missCount;
+    }
+
+    /***
+     * Returns the number of responses evicted because the cache was full or because they expired, stale time included
+     * @return long
+     */
+    public synchronized long getEvictionCount(){
+        return evictionCount;
+    }
+
+    private static long currentTime(){
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /***
+     * A cached response and the time it was stored
+     */
+    private static class CacheEntry<V> {
+        private final V value;
+        private final long storedAt;
+
+        private CacheEntry(V value, long storedAt){
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
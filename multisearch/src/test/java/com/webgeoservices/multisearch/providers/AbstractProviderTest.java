@@ -0,0 +1,318 @@
+package com.webgeoservices.multisearch.providers;
+
+import com.webgeoservices.multisearch.SearchProviderType;
+import com.webgeoservices.multisearch.WoosmapException;
+import com.webgeoservices.multisearch.configs.ProviderConfig;
+import com.webgeoservices.multisearch.utils.DetailsDiskCache;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Timeout;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks how the provider records the latencies of its search calls, hedges the slow ones and uses its caches
+ */
+public class AbstractProviderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void httpCacheHitsAreNotRecordedAsLatencies() throws Exception {
+        TestProvider provider = new TestProvider(new ProviderConfig.Builder(SearchProviderType.LOCALITIES).key("key").build());
+
+        provider.executeSearch(new FakeCall(0, false));
+        provider.executeSearch(new FakeCall(0, false));
+        assertEquals(0, provider.getSearchLatencyTracker().getSampleCount());
+
+        provider.executeSearch(new FakeCall(0, true));
+        assertEquals(1, provider.getSearchLatencyTracker().getSampleCount());
+    }
+
+    @Test
+    public void slowCallsAreHedged() throws Exception {
+        TestProvider provider = new TestProvider(new ProviderConfig.Builder(SearchProviderType.LOCALITIES).key("key").hedgePercentile(0.5f).build());
+        for (int sample = 0; sample < 8; sample++){
+            provider.getSearchLatencyTracker().record(20);
+        }
+        FakeCall slowCall = new FakeCall(3000, true);
+        provider.call = slowCall;
+
+        long start = System.currentTimeMillis();
+        Response<ResponseBody> response = provider.executeSearch(slowCall);
+
+        assertTrue(System.currentTimeMillis() - start < 1500);
+        assertTrue(slowCall.isCanceled());
+        assertTrue(provider.call instanceof FakeCall);
+        assertTrue(provider.call != slowCall);
+        assertSame(((FakeCall) provider.call).response, response);
+    }
+
+    @Test
+    public void fastCallsAreNotHedged() throws Exception {
+        TestProvider provider = new TestProvider(new ProviderConfig.Builder(SearchProviderType.LOCALITIES).key("key").hedgePercentile(0.5f).build());
+        for (int sample = 0; sample < 8; sample++){
+            provider.getSearchLatencyTracker().record(20);
+        }
+        FakeCall fastCall = new FakeCall(0, true);
+
+        Response<ResponseBody> response = provider.executeSearch(fastCall);
+
+        assertSame(fastCall.response, response);
+        assertEquals(0, fastCall.cloneCount);
+    }
+
+    @Test
+    public void searchCancelsTheOngoingCall() throws Exception {
+        TestProvider provider = new TestProvider(new ProviderConfig.Builder(SearchProviderType.LOCALITIES).key("key").build());
+        FakeCall backgroundCall = new FakeCall(300, true);
+        provider.calls.put("par", backgroundCall);
+        provider.calls.put("pari", new FakeCall(0, true));
+
+        CompletableFuture<List<JSONObject>> background = CompletableFuture.supplyAsync(() -> searchQuietly(provider, "par", false));
+        Thread.sleep(50);
+        provider.search("pari");
+
+        assertTrue(backgroundCall.isCanceled());
+        assertTrue(background.get(2, TimeUnit.SECONDS) == null);
+    }
+
+    @Test
+    public void searchForRequestLetsTheOngoingCallComplete() throws Exception {
+        TestProvider provider = new TestProvider(new ProviderConfig.Builder(SearchProviderType.LOCALITIES).key("key").build());
+        FakeCall backgroundCall = new FakeCall(300, true);
+        provider.calls.put("par", backgroundCall);
+        provider.calls.put("pari", new FakeCall(0, true));
+
+        CompletableFuture<List<JSONObject>> background = CompletableFuture.supplyAsync(() -> searchQuietly(provider, "par", true));
+        Thread.sleep(50);
+        provider.searchForRequest("pari", null);
+
+        assertEquals(1, background.get(2, TimeUnit.SECONDS).size());
+        assertTrue(!backgroundCall.isCanceled());
+        //cancel() still cancels the latest call on behalf of its request
+        provider.cancel();
+        assertTrue(provider.calls.get("pari").isCanceled());
+    }
+
+    @Test
+    public void revalidationSkipsTheCaches() throws Exception {
+        CacheLookupProvider provider = new CacheLookupProvider(new ProviderConfig.Builder(SearchProviderType.LOCALITIES).key("key").negativeCacheSize(16).build());
+        provider.cacheSearchResult(new FakeCall(0, true), "paris", Collections.singletonList(new JSONObject()));
+        assertEquals(1, provider.search("paris").size());
+        assertNull(provider.revalidate("paris"));
+
+        provider.cacheSearchResult(new FakeCall(0, true), "zz", Collections.<JSONObject>emptyList());
+        assertEquals(0, provider.search("zzz").size());
+        assertNull(provider.revalidate("zzz"));
+    }
+
+    @Test
+    public void narrowingCandidatesExpireWithTheResponseCache() throws Exception {
+        CacheLookupProvider provider = new CacheLookupProvider(new ProviderConfig.Builder(SearchProviderType.LOCALITIES).key("key").pageSize(5).responseCacheTtl(100).build());
+        provider.recordSearchCandidates("par", Collections.singletonList(new JSONObject()));
+
+        assertEquals(1, provider.getNarrowingCandidates("pari").size());
+        assertNull(provider.getNarrowingCandidates("lon"));
+        Thread.sleep(150);
+        assertNull(provider.getNarrowingCandidates("pari"));
+    }
+
+    @Test
+    public void detailsAreCachedPerConfiguration() throws Exception {
+        DetailsDiskCache detailsCache = new DetailsDiskCache(folder.getRoot());
+        CacheLookupProvider provider = new CacheLookupProvider(new ProviderConfig.Builder(SearchProviderType.LOCALITIES).key("key").build());
+        CacheLookupProvider frenchProvider = new CacheLookupProvider(new ProviderConfig.Builder(SearchProviderType.LOCALITIES).key("key").language("fr").build());
+        provider.setDetailsCache(detailsCache);
+        frenchProvider.setDetailsCache(detailsCache);
+
+        provider.details("id");
+        provider.details("id");
+        assertEquals(1, provider.fetchCount);
+
+        frenchProvider.details("id");
+        assertEquals(1, frenchProvider.fetchCount);
+    }
+
+    private static List<JSONObject> searchQuietly(TestProvider provider, String searchString, boolean forRequest){
+        try{
+            return forRequest ? provider.searchForRequest(searchString, null) : provider.search(searchString);
+        }
+        catch (WoosmapException ex){
+            return null;
+        }
+    }
+
+    /**
+     * Searches like the providers: cancels the previous call, then executes the call registered for the search string
+     */
+    private static class TestProvider extends AbstractProvider {
+        private final Map<String, FakeCall> calls = new ConcurrentHashMap<>();
+
+        private TestProvider(ProviderConfig providerConfig){
+            setProviderConfig(providerConfig);
+        }
+
+        @Override
+        public List<JSONObject> search(String searchString) throws WoosmapException {
+            cancelPreviousApiCall();
+            FakeCall searchCall = calls.get(searchString);
+            call = searchCall;
+            try{
+                executeSearch(searchCall);
+                return Collections.singletonList(new JSONObject());
+            }
+            catch (IOException ex){
+                if (searchCall.isCanceled()){
+                    return null;
+                }
+                throw new WoosmapException(ex.getMessage());
+            }
+        }
+
+        @Override
+        protected JSONObject fetchDetails(String id) throws WoosmapException {
+            throw new WoosmapException("Not supported");
+        }
+    }
+
+    /**
+     * Only answers searches from the caches, null meaning the API would be called. Counts the details fetched
+     */
+    private static class CacheLookupProvider extends AbstractProvider {
+        private int fetchCount = 0;
+
+        private CacheLookupProvider(ProviderConfig providerConfig){
+            setProviderConfig(providerConfig);
+        }
+
+        @Override
+        public List<JSONObject> search(String searchString) {
+            return getCachedSearchResult(new FakeCall(0, true), searchString);
+        }
+
+        @Override
+        protected JSONObject fetchDetails(String id) throws WoosmapException {
+            fetchCount++;
+            try{
+                return new JSONObject("{\"public_id\":\"" + id + "\",\"formatted_address\":\"Paris\",\"types\":[\"locality\"]}");
+            }
+            catch (JSONException ex){
+                throw new WoosmapException(ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A call answered after a delay. Its clones answer right away
+     */
+    private static class FakeCall implements Call<ResponseBody> {
+        private static final Request REQUEST = new Request.Builder().url("https://api.woosmap.com/localities/autocomplete/?input=paris").build();
+
+        private final long delay;
+        private final Response<ResponseBody> response;
+        private volatile boolean canceled;
+        private int cloneCount = 0;
+
+        private FakeCall(long delay, boolean fromNetwork){
+            this.delay = delay;
+            okhttp3.Response.Builder rawResponse = new okhttp3.Response.Builder()
+                    .request(REQUEST)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK");
+            if (fromNetwork){
+                rawResponse.networkResponse(new okhttp3.Response.Builder().request(REQUEST).protocol(Protocol.HTTP_1_1).code(200).message("OK").build());
+            }
+            this.response = Response.success(ResponseBody.create(MediaType.get("application/json"), "{}"), rawResponse.build());
+        }
+
+        @Override
+        public Response<ResponseBody> execute() throws IOException {
+            waitForResponse();
+            return response;
+        }
+
+        @Override
+        public void enqueue(Callback<ResponseBody> callback) {
+            new Thread(() -> {
+                try{
+                    waitForResponse();
+                    callback.onResponse(this, response);
+                }
+                catch (IOException ex){
+                    callback.onFailure(this, ex);
+                }
+            }).start();
+        }
+
+        private void waitForResponse() throws IOException {
+            long end = System.currentTimeMillis() + delay;
+            while (System.currentTimeMillis() < end && !canceled){
+                try{
+                    Thread.sleep(5);
+                }
+                catch (InterruptedException ex){
+                    throw new IOException(ex);
+                }
+            }
+            if (canceled){
+                throw new IOException("Canceled");
+            }
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return false;
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @Override
+        public Call<ResponseBody> clone() {
+            cloneCount++;
+            return new FakeCall(0, true);
+        }
+
+        @Override
+        public Request request() {
+            return REQUEST;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.webgeoservices.multisearch.reactive;
+
+import com.webgeoservices.multisearch.scheduling.FixedDebouncePolicy;
+import com.webgeoservices.multisearch.searchdatamodels.AutocompleteResponseItem;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks how the publisher honours the demand of its subscriber and terminates the stream
+ */
+public class AutocompletePublisherTest {
+
+    @Test
+    public void resultsWaitForDemand() throws Exception {
+        AutocompletePublisher publisher = new AutocompletePublisher(searchStrings("paris"),
+                (searchString, listener) -> listener.onSearchComplete(Collections.<AutocompleteResponseItem>emptyList(), null),
+                () -> new FixedDebouncePolicy(0));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        Thread.sleep(200);
+        assertEquals(0, subscriber.results.size());
+        assertEquals(1, subscriber.terminated.getCount());
+
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.terminated.await(2, TimeUnit.SECONDS));
+        assertEquals(1, subscriber.results.size());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void aThrowingSearchTerminatesTheStreamWithAnError() throws Exception {
+        IllegalStateException failure = new IllegalStateException("MultiSearch was shut down");
+        AutocompletePublisher publisher = new AutocompletePublisher(searchStrings("paris"),
+                (searchString, listener) -> {
+                    throw failure;
+                },
+                () -> new FixedDebouncePolicy(0));
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        assertTrue(subscriber.terminated.await(2, TimeUnit.SECONDS));
+        assertEquals(failure, subscriber.error);
+        assertEquals(0, subscriber.results.size());
+    }
+
+    /**
+     * Emits the search strings once requested, then completes
+     */
+    private static Publisher<String> searchStrings(String... values){
+        return subscriber -> subscriber.onSubscribe(new Subscription() {
+            private boolean done = false;
+
+            @Override
+            public void request(long n) {
+                if (done){
+                    return;
+                }
+                done = true;
+                for (String value : Arrays.asList(values)){
+                    subscriber.onNext(value);
+                }
+                subscriber.onComplete();
+            }
+
+            @Override
+            public void cancel() {
+                done = true;
+            }
+        });
+    }
+
+    /**
+     * Records the signals it receives, without requesting anything by itself
+     */
+    private static class RecordingSubscriber implements Subscriber<List<AutocompleteResponseItem>> {
+        private final List<List<AutocompleteResponseItem>> results = new CopyOnWriteArrayList<>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile Subscription subscription;
+        private volatile Throwable error;
+        private volatile boolean completed = false;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(List<AutocompleteResponseItem> result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            terminated.countDown();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.webgeoservices.multisearch.scheduling;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the coalescing, throttling and error handling of the keystroke scheduler
+ */
+public class KeystrokeSchedulerTest {
+    private final KeystrokeScheduler scheduler = new KeystrokeScheduler();
+
+    @After
+    public void shutdownScheduler(){
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void onlyTheLatestKeystrokeRuns() throws Exception {
+        List<String> queries = new CopyOnWriteArrayList<>();
+        CountDownLatch fired = new CountDownLatch(1);
+        FixedDebouncePolicy debouncePolicy = new FixedDebouncePolicy(100);
+        for (String query : new String[]{"p", "pa", "par"}){
+            scheduler.submit(() -> {
+                queries.add(query);
+                fired.countDown();
+            }, debouncePolicy);
+        }
+        assertEquals(1, scheduler.getQueueDepth());
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        Thread.sleep(150);
+        assertEquals(1, queries.size());
+        assertEquals("par", queries.get(0));
+        assertEquals(3, scheduler.getSubmittedCount());
+        assertEquals(2, scheduler.getDroppedCount());
+        assertEquals(1, scheduler.getFiredCount());
+        assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void throttlingDelaysTheNextRequest() throws Exception {
+        scheduler.setThrottleInterval(200);
+        FixedDebouncePolicy debouncePolicy = new FixedDebouncePolicy(0);
+        CountDownLatch first = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(1);
+
+        scheduler.submit(first::countDown, debouncePolicy);
+        assertTrue(first.await(2, TimeUnit.SECONDS));
+        long submitTime = System.nanoTime();
+        scheduler.submit(second::countDown, debouncePolicy);
+        assertTrue(second.await(2, TimeUnit.SECONDS));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitTime) >= 150);
+    }
+
+    @Test
+    public void aFailingRequestDoesNotStopTheNextOnes() throws Exception {
+        FixedDebouncePolicy debouncePolicy = new FixedDebouncePolicy(0);
+        CountDownLatch failed = new CountDownLatch(1);
+        CountDownLatch next = new CountDownLatch(1);
+
+        scheduler.submit(() -> {
+            failed.countDown();
+            throw new IllegalStateException("no provider");
+        }, debouncePolicy);
+        assertTrue(failed.await(2, TimeUnit.SECONDS));
+        scheduler.submit(next::countDown, debouncePolicy);
+
+        assertTrue(next.await(2, TimeUnit.SECONDS));
+        assertEquals(2, scheduler.getFiredCount());
+    }
+
+    @Test
+    public void adaptivePolicyRunsTheLeadingEdgeRightAwayAndDebouncesBursts(){
+        AdaptiveDebouncePolicy policy = new AdaptiveDebouncePolicy.Builder().minDelay(50).maxDelay(400).idleTime(1000).build();
+
+        assertEquals(0, policy.nextDelay(10000));
+        assertEquals(150, policy.nextDelay(10100)); //1.5 times the 100 ms interval
+        assertEquals(330, policy.nextDelay(10600)); //1.5 times the smoothed 220 ms interval
+        assertEquals(0, policy.nextDelay(12000)); //Idle, leading edge again
+    }
+
+    @Test
+    public void adaptivePolicyGivesTheMinimumDelayToSlowTypists(){
+        AdaptiveDebouncePolicy policy = new AdaptiveDebouncePolicy.Builder().minDelay(50).maxDelay(400).smoothingFactor(1).build();
+
+        policy.nextDelay(0);
+        assertEquals(50, policy.nextDelay(500));
+    }
+
+    @Test
+    public void adaptivePolicyWaitsLongerWhenRequestsAreSlow(){
+        AdaptiveDebouncePolicy policy = new AdaptiveDebouncePolicy.Builder().minDelay(50).maxDelay(400).build();
+        policy.recordLatency(600);
+
+        policy.nextDelay(0);
+        assertEquals(300, policy.nextDelay(100)); //Half the 600 ms latency
+    }
+}
@@ -0,0 +1,131 @@
+package com.webgeoservices.multisearch.scorers;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the multi-word masks of BitapPattern against a reference edit distance for patterns longer than a word.
+ * With ignoreLocation, the Bitap score of a match is the smallest number of edits of the pattern found in the text divided by the pattern length.
+ */
+public class BitapPatternTest {
+    private static final BitapPattern.Options IGNORE_LOCATION = new BitapPattern.Options(true, true, 100);
+    private static final String ALPHABET = "abcdefghij -,";
+
+    @Test
+    public void longPatternsMatchTheReferenceEditDistance(){
+        Random random = new Random(42);
+        BitapPattern.Workspace workspace = new BitapPattern.Workspace();
+        for (int iteration = 0; iteration < 300; iteration++){
+            int patternLength = 40 + random.nextInt(41);
+            String pattern = randomText(random, patternLength);
+            String text = mutate(random, pattern, random.nextInt(12));
+            text = randomText(random, random.nextInt(20)) + text + randomText(random, random.nextInt(20));
+            double threshold = 0.3;
+
+            int errors = substringEditDistance(pattern, text);
+            boolean isMatch = new BitapPattern(pattern).search(text, 0, threshold, IGNORE_LOCATION, workspace);
+
+            String message = "pattern '" + pattern + "' in '" + text + "'";
+            assertEquals(message, (double) errors / patternLength <= threshold, isMatch);
+            if (isMatch){
+                assertEquals(message, Math.max(0.001, (double) errors / patternLength), workspace.getScore(), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void patternsLongerThanAWordAreMatchedExactly(){
+        String pattern = "saint-martin-de-valamas, ardeche, auvergne-rhone-alpes, france, europe";
+        assertTrue(pattern.length() > 64);
+        BitapPattern.Workspace workspace = new BitapPattern.Workspace();
+
+        assertTrue(new BitapPattern(pattern).search("commune de " + pattern, 0, 0.6, IGNORE_LOCATION, workspace));
+        assertEquals(0.001, workspace.getScore(), 0);
+
+        String typo = pattern.replace("ardeche", "ardehce");
+        assertTrue(new BitapPattern(pattern).search(typo, 0, 0.6, IGNORE_LOCATION, workspace));
+        assertEquals(2.0 / pattern.length(), workspace.getScore(), 1e-12);
+    }
+
+    @Test
+    public void defaultScoringConfigurationDoesNotChunkLongQueries() throws Exception {
+        ScoringConfiguration configuration = new ScoringConfiguration.Builder().build();
+        assertEquals(0, configuration.getMaxPatternLength());
+        assertEquals(0, configuration.toFuseOptions().getInt("maxPatternLength"));
+
+        String query = "avenue des champs-elysees, 75008 paris, ile-de-france";
+        String description = "Avenue des Champs-Elysees, 75008 Paris, Ile-de-France, France";
+        List<JSONObject> data = new ArrayList<>(Collections.singletonList(new JSONObject().put("description", description)));
+
+        List<JSONObject> unchunked = new BitapScorer(configuration.toFuseOptions()).scoreResults(data, query, 0.6f);
+        assertEquals(1, unchunked.size());
+        assertEquals(0.001, unchunked.get(0).getDouble("score"), 0);
+
+        String typoQuery = query.replace("paris", "pairs");
+        int errors = substringEditDistance(typoQuery, description.toLowerCase());
+        List<JSONObject> typoResult = new BitapScorer(configuration.toFuseOptions()).scoreResults(data, typoQuery, 0.6f);
+        assertEquals((double) errors / typoQuery.length(), typoResult.get(0).getDouble("score"), 1e-12);
+
+        ScoringConfiguration chunkedConfiguration = new ScoringConfiguration.Builder().maxPatternLength(BitapScorer.MAX_BITS).build();
+        assertTrue(!chunkedConfiguration.equals(configuration));
+        List<JSONObject> chunked = new BitapScorer(chunkedConfiguration.toFuseOptions()).scoreResults(data, typoQuery, 0.6f);
+        assertTrue(chunked.get(0).getDouble("score") != typoResult.get(0).getDouble("score"));
+    }
+
+    /**
+     * Smallest Levenshtein distance between the pattern and any substring of the text
+     */
+    private static int substringEditDistance(String pattern, String text){
+        int[] previous = new int[text.length() + 1];
+        int[] current = new int[text.length() + 1];
+        for (int i = 1; i <= pattern.length(); i++){
+            current[0] = i;
+            for (int j = 1; j <= text.length(); j++){
+                int substitution = previous[j - 1] + (pattern.charAt(i - 1) == text.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j] + 1, current[j - 1] + 1));
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int value : previous){
+            best = Math.min(best, value);
+        }
+        return best;
+    }
+
+    private static String randomText(Random random, int length){
+        StringBuilder text = new StringBuilder();
+        for (int index = 0; index < length; index++){
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+
+    private static String mutate(Random random, String text, int edits){
+        StringBuilder mutated = new StringBuilder(text);
+        for (int edit = 0; edit < edits && mutated.length() > 1; edit++){
+            int position = random.nextInt(mutated.length());
+            switch (random.nextInt(3)){
+                case 0:
+                    mutated.setCharAt(position, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+                    break;
+                case 1:
+                    mutated.deleteCharAt(position);
+                    break;
+                default:
+                    mutated.insert(position, ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return mutated.toString();
+    }
+}
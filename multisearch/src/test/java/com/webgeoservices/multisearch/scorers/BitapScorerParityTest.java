@@ -0,0 +1,131 @@
+package com.webgeoservices.multisearch.scorers;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that BitapScorer returns the same results, scores and ordering as Fuse.js v6.4.6.
+ * The expected results are produced by src/test/js/generate-fuse-parity.js with the Fuse.js build shipped in the assets.
+ */
+public class BitapScorerParityTest {
+    private static final double EPSILON = 2.220446049250313e-16;
+    private static JSONArray cases;
+
+    @BeforeClass
+    public static void loadCases() throws IOException, JSONException {
+        try (InputStream input = BitapScorerParityTest.class.getClassLoader().getResourceAsStream("fuse-parity.json")){
+            assertNotNull("fuse-parity.json is missing from the test resources", input);
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1){
+                content.write(buffer, 0, read);
+            }
+            cases = new JSONArray(new String(content.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void matchesFuseResults() throws JSONException {
+        for (int index = 0; index < cases.length(); index++){
+            assertCase(cases.getJSONObject(index));
+        }
+    }
+
+    @Test
+    public void exactMatchScoresEpsilon() throws JSONException {
+        List<JSONObject> results = score(findCase("default options, exact matches and ties"));
+        for (int index = 0; index < 3; index++){
+            assertEquals(EPSILON, results.get(index).getDouble("score"), 0);
+        }
+        assertEquals("paris", results.get(1).getJSONObject("item").getString("description"));
+    }
+
+    @Test
+    public void tiesAreOrderedByIndex() throws JSONException {
+        List<JSONObject> results = score(findCase("default options, one typo"));
+        for (int index = 1; index < results.size(); index++){
+            JSONObject previous = results.get(index - 1);
+            JSONObject current = results.get(index);
+            if (previous.getDouble("score") == current.getDouble("score")){
+                assertTrue(previous.getInt("refIndex") < current.getInt("refIndex"));
+            }
+        }
+    }
+
+    @Test
+    public void longQueriesAreChunkedLikeFuse() throws JSONException {
+        for (String name : Arrays.asList("chunked 45 character query", "chunked 64 character query", "chunked 70 character query")){
+            JSONObject testCase = findCase(name);
+            assertTrue(testCase.getString("query").length() > BitapScorer.MAX_BITS);
+            assertCase(testCase);
+        }
+    }
+
+    @Test
+    public void fieldNormLowersTheScoreOfLongValues() throws JSONException {
+        JSONObject testCase = findCase("field norm");
+        assertCase(testCase);
+        List<JSONObject> results = score(testCase);
+        //"Paris, France" has two tokens: 0.001 ^ (1 / sqrt(2)) rounded to 3 decimals
+        assertEquals(Math.pow(0.001, 0.707), scoreOf(results, 2), 1e-15);
+    }
+
+    private static void assertCase(JSONObject testCase) throws JSONException {
+        String name = testCase.getString("name");
+        JSONArray expected = testCase.getJSONArray("expected");
+        List<JSONObject> results = score(testCase);
+        assertEquals(name + ": number of results", expected.length(), results.size());
+        for (int index = 0; index < expected.length(); index++){
+            JSONArray expectedResult = expected.getJSONArray(index);
+            JSONObject result = results.get(index);
+            assertEquals(name + ": refIndex at " + index, expectedResult.getInt(0), result.getInt("refIndex"));
+            double expectedScore = expectedResult.getDouble(1);
+            assertEquals(name + ": score at " + index, expectedScore, result.getDouble("score"), Math.abs(expectedScore) * 1e-12);
+        }
+    }
+
+    private static List<JSONObject> score(JSONObject testCase) throws JSONException {
+        JSONObject options = testCase.getJSONObject("options");
+        JSONArray data = testCase.getJSONArray("data");
+        List<JSONObject> items = new ArrayList<>();
+        for (int index = 0; index < data.length(); index++){
+            items.add(data.getJSONObject(index));
+        }
+        BitapScorer scorer = new BitapScorer(options);
+        return scorer.scoreResults(items, testCase.getString("query"), (float) options.getDouble("threshold"));
+    }
+
+    private static double scoreOf(List<JSONObject> results, int refIndex) throws JSONException {
+        for (JSONObject result : results){
+            if (result.getInt("refIndex") == refIndex){
+                return result.getDouble("score");
+            }
+        }
+        throw new AssertionError("No result for " + refIndex);
+    }
+
+    private static JSONObject findCase(String name) throws JSONException {
+        for (int index = 0; index < cases.length(); index++){
+            if (cases.getJSONObject(index).getString("name").equals(name)){
+                return cases.getJSONObject(index);
+            }
+        }
+        throw new AssertionError("No case named " + name);
+    }
+}
@@ -0,0 +1,78 @@
+package com.webgeoservices.multisearch.scorers;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the bounded scoring returns the first results of the full scoring
+ */
+public class BitapScorerTopKTest {
+
+    @Test
+    public void topKMatchesTheHeadOfTheFullScoring() throws Exception {
+        List<JSONObject> data = randomDescriptions(400);
+        for (String searchString : new String[]{"paris", "rue de la", "marsielle", "avnue"}){
+            List<JSONObject> fullResult = newScorer().scoreResults(data, searchString, 0.6f);
+            assertSameResults(head(fullResult, 10, Float.POSITIVE_INFINITY), newScorer().scoreResults(data, searchString, 0.6f, 10, Float.POSITIVE_INFINITY));
+            assertSameResults(head(fullResult, 10, 0.3f), newScorer().scoreResults(data, searchString, 0.6f, 10, 0.3f));
+        }
+    }
+
+    @Test
+    public void theIndexDoesNotChangeTheResults() throws Exception {
+        List<JSONObject> data = randomDescriptions(200);
+        BitapScorer scorer = newScorer();
+        List<JSONObject> firstResult = scorer.scoreResults(data, "par", 0.6f, 5, Float.POSITIVE_INFINITY);
+
+        assertSameResults(firstResult, scorer.scoreResults(data, "par", 0.6f, 5, Float.POSITIVE_INFINITY));
+        assertSameResults(head(newScorer().scoreResults(data, "pari", 0.6f), 5, Float.POSITIVE_INFINITY), scorer.scoreResults(data, "pari", 0.6f, 5, Float.POSITIVE_INFINITY));
+    }
+
+    @Test
+    public void aZeroLimitReturnsNothing(){
+        assertTrue(newScorer().scoreResults(new ArrayList<>(), "paris", 0.6f, 0, Float.POSITIVE_INFINITY).isEmpty());
+    }
+
+    private static BitapScorer newScorer(){
+        return new BitapScorer(new ScoringConfiguration.Builder().build().toFuseOptions());
+    }
+
+    private static List<JSONObject> head(List<JSONObject> result, int limit, float scoreCutoff) throws Exception {
+        List<JSONObject> head = new ArrayList<>();
+        for (JSONObject item : result){
+            if (head.size() < limit && item.getDouble("score") <= scoreCutoff){
+                head.add(item);
+            }
+        }
+        return head;
+    }
+
+    private static void assertSameResults(List<JSONObject> expected, List<JSONObject> actual) throws Exception {
+        assertEquals(expected.size(), actual.size());
+        for (int index = 0; index < expected.size(); index++){
+            assertEquals(expected.get(index).getInt("refIndex"), actual.get(index).getInt("refIndex"));
+            assertEquals(expected.get(index).getDouble("score"), actual.get(index).getDouble("score"), 0);
+        }
+    }
+
+    private static List<JSONObject> randomDescriptions(int count) throws Exception {
+        String[] words = {"rue", "de", "la", "paix", "paris", "parisis", "avenue", "lyon", "place", "des", "vosges", "marseille", "boulevard"};
+        Random random = new Random(3);
+        List<JSONObject> data = new ArrayList<>();
+        for (int index = 0; index < count; index++){
+            StringBuilder description = new StringBuilder();
+            for (int word = 0; word < 1 + random.nextInt(4); word++){
+                description.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            data.add(new JSONObject().put("description", description.toString().trim()).put("public_id", "item-" + index));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,61 @@
+package com.webgeoservices.multisearch.scorers;
+
+import org.json.JSONObject;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that partitioned scoring returns the same results, in the same order, as a sequential scoring
+ */
+public class ParallelScorerTest {
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool(){
+        pool.shutdown();
+    }
+
+    @Test
+    public void partitionedScoringMatchesSequentialScoring() throws Exception {
+        BitapScorer scorer = new BitapScorer(new ScoringConfiguration.Builder().build().toFuseOptions());
+        ParallelScorer parallelScorer = new ParallelScorer(scorer, pool, 16);
+        List<JSONObject> data = randomDescriptions(500);
+
+        assertSameResults(scorer.scoreResults(data, "rue de", 0.6f), parallelScorer.scoreResults(data, "rue de", 0.6f));
+        assertSameResults(scorer.scoreResults(data, "paris", 0.6f, 10, 0.3f), parallelScorer.scoreResults(data, "paris", 0.6f, 10, 0.3f));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void poolIsRequired(){
+        new ParallelScorer(new BitapScorer(new ScoringConfiguration.Builder().build().toFuseOptions()), null);
+    }
+
+    private static void assertSameResults(List<JSONObject> expected, List<JSONObject> actual) throws Exception {
+        assertEquals(expected.size(), actual.size());
+        for (int index = 0; index < expected.size(); index++){
+            assertEquals(expected.get(index).getInt("refIndex"), actual.get(index).getInt("refIndex"));
+            assertEquals(expected.get(index).getDouble("score"), actual.get(index).getDouble("score"), 0);
+        }
+    }
+
+    private static List<JSONObject> randomDescriptions(int count) throws Exception {
+        String[] words = {"rue", "de", "la", "paix", "paris", "avenue", "lyon", "place", "des", "vosges", "marseille", "boulevard"};
+        Random random = new Random(7);
+        List<JSONObject> data = new ArrayList<>();
+        for (int index = 0; index < count; index++){
+            StringBuilder description = new StringBuilder();
+            for (int word = 0; word < 4; word++){
+                description.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            data.add(new JSONObject().put("description", description.toString().trim()));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,51 @@
+package com.webgeoservices.multisearch.scorers;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that the pool returns the results of its scorers and reports their failures
+ */
+public class ScorerPoolTest {
+
+    @Test
+    public void scoresOnTheWorkers() throws Exception {
+        ScorerPool pool = new ScorerPool(2, () -> new BitapScorer(new ScoringConfiguration.Builder().build().toFuseOptions()));
+        try{
+            List<JSONObject> data = Collections.singletonList(new JSONObject().put("description", "Paris"));
+            List<JSONObject> result = pool.scoreResults(data, "paris", 0.6f);
+
+            assertEquals(1, result.size());
+            assertEquals(0, result.get(0).getDouble("score"), 1e-9);
+            assertEquals(1, pool.getMetrics().getCompletedCount());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void failuresAreThrownInsteadOfReturningUnscoredResults() throws Exception {
+        ScorerPool pool = new ScorerPool(1, () -> (data, searchString, fallbackBreakpoint) -> {
+            throw new IllegalArgumentException("broken scorer");
+        });
+        try{
+            pool.scoreResults(Collections.singletonList(new JSONObject().put("description", "Paris")), "paris", 0.6f);
+            fail("The failure of the scorer must be thrown");
+        }
+        catch (IllegalStateException ex){
+            assertEquals(IllegalArgumentException.class, ex.getCause().getClass());
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertEquals(1, pool.getMetrics().getFailedCount());
+        assertEquals(1, pool.getMetrics().getIdleWorkers());
+    }
+}
@@ -0,0 +1,56 @@
+package com.webgeoservices.multisearch.scorers;
+
+import com.webgeoservices.multisearch.interfaces.Scorable;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks which scoring configurations share a scorer
+ */
+public class ScorerRegistryTest {
+
+    @Test
+    public void configurationsDifferingByThresholdShareTheirScorer(){
+        AtomicInteger created = new AtomicInteger();
+        ScorerRegistry registry = new ScorerRegistry(configuration -> {
+            created.incrementAndGet();
+            return new BitapScorer(configuration.toFuseOptions());
+        });
+
+        Scorable strict = registry.getScorer(new ScoringConfiguration.Builder().threshold(0.1f).build());
+        Scorable loose = registry.getScorer(new ScoringConfiguration.Builder().threshold(0.9f).build());
+
+        assertSame(strict, loose);
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void configurationsDifferingByKeysOrOptionsDoNotShareTheirScorer(){
+        ScorerRegistry registry = new ScorerRegistry(configuration -> new BitapScorer(configuration.toFuseOptions()));
+
+        Scorable description = registry.getScorer(new ScoringConfiguration.Builder().build());
+        Scorable name = registry.getScorer(new ScoringConfiguration.Builder().key("name", 1f).build());
+        Scorable chunked = registry.getScorer(new ScoringConfiguration.Builder().maxPatternLength(BitapScorer.MAX_BITS).build());
+
+        assertNotSame(description, name);
+        assertNotSame(description, chunked);
+        assertSame(description, registry.getScorer(new ScoringConfiguration.Builder().key("description", 1f).build()));
+    }
+
+    @Test
+    public void buildingDoesNotAddTheDefaultKeyToTheBuilder(){
+        ScoringConfiguration.Builder builder = new ScoringConfiguration.Builder();
+        assertEquals(Collections.singletonList("description"), builder.build().getKeyNames());
+
+        ScoringConfiguration name = builder.key("name", 1f).build();
+        assertEquals(Collections.singletonList("name"), name.getKeyNames());
+        assertEquals(new ScoringConfiguration.Builder().key("name", 1f).build(), name);
+    }
+}
@@ -0,0 +1,68 @@
+package com.webgeoservices.multisearch.scorers;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the signature only discards the texts which the pattern can not match under the threshold
+ */
+public class TextSignatureTest {
+
+    @Test
+    public void unrelatedTextsAreDiscarded(){
+        assertTrue(new TextSignature("london").cannotMatch(new TextSignature("paris"), 0.4));
+        assertTrue(new TextSignature("par").cannotMatch(new TextSignature("paris"), 0.2));
+        assertFalse(new TextSignature("parisian").cannotMatch(new TextSignature("paris"), 0.4));
+        assertFalse(new TextSignature("prais").cannotMatch(new TextSignature("paris"), 0.4));
+        assertFalse(new TextSignature("london").cannotMatch(new TextSignature(""), 0));
+    }
+
+    @Test
+    public void discardedTextsNeedMoreErrorsThanTheThresholdAllows(){
+        Random random = new Random(11);
+        double[] thresholds = {0, 0.2, 0.4, 0.6};
+        for (int sample = 0; sample < 5000; sample++){
+            String pattern = randomText(random, 1 + random.nextInt(8));
+            String text = randomText(random, random.nextInt(16));
+            double threshold = thresholds[random.nextInt(thresholds.length)];
+            if (new TextSignature(text).cannotMatch(new TextSignature(pattern), threshold)){
+                assertTrue(pattern + " / " + text, (double) minimumErrors(pattern, text) / pattern.length() > threshold);
+            }
+        }
+    }
+
+    private static String randomText(Random random, int length){
+        StringBuilder text = new StringBuilder();
+        for (int index = 0; index < length; index++){
+            text.append("abcde ".charAt(random.nextInt(6)));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Smallest edit distance between the pattern and a substring of the text (Sellers)
+     */
+    private static int minimumErrors(String pattern, String text){
+        int[] previous = new int[text.length() + 1];
+        int[] current = new int[text.length() + 1];
+        for (int patternIndex = 1; patternIndex <= pattern.length(); patternIndex++){
+            current[0] = patternIndex;
+            for (int textIndex = 1; textIndex <= text.length(); textIndex++){
+                int substitution = previous[textIndex - 1] + (pattern.charAt(patternIndex - 1) == text.charAt(textIndex - 1) ? 0 : 1);
+                current[textIndex] = Math.min(substitution, Math.min(previous[textIndex], current[textIndex - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int minimum = pattern.length();
+        for (int errors : previous){
+            minimum = Math.min(minimum, errors);
+        }
+        return minimum;
+    }
+}
@@ -0,0 +1,52 @@
+package com.webgeoservices.multisearch.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the cancel actions of a cancellation token
+ */
+public class CancellationTokenTest {
+
+    @Test
+    public void cancelRunsTheActionsOnce(){
+        CancellationToken token = new CancellationToken();
+        AtomicInteger cancelCount = new AtomicInteger();
+        token.onCancel(cancelCount::incrementAndGet);
+
+        token.cancel();
+        token.cancel();
+        token.onCancel(cancelCount::incrementAndGet); //Runs right away once cancelled
+
+        assertTrue(token.isCancelled());
+        assertEquals(2, cancelCount.get());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void detachedTokenStillStopsTheNextStage(){
+        CancellationToken token = new CancellationToken();
+        token.detach();
+        token.cancel();
+        token.throwIfCancelled();
+    }
+
+    @Test
+    public void detachedTokenDoesNotRunItsActions(){
+        CancellationToken token = new CancellationToken();
+        AtomicInteger cancelCount = new AtomicInteger();
+        token.onCancel(cancelCount::incrementAndGet);
+
+        token.detach();
+        token.onCancel(cancelCount::incrementAndGet);
+        token.cancel();
+        token.onCancel(cancelCount::incrementAndGet);
+
+        assertTrue(token.isCancelled());
+        assertEquals(0, cancelCount.get());
+    }
+}
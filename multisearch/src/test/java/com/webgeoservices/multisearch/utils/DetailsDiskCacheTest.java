@@ -0,0 +1,89 @@
+package com.webgeoservices.multisearch.utils;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the expiry, recovery and compaction of the details disk cache
+ */
+public class DetailsDiskCacheTest {
+    private static final long TTL = 60000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void payloadsAreReadBackByTheNextSession() throws Exception {
+        DetailsDiskCache cache = new DetailsDiskCache(folder.getRoot());
+        cache.put("LOCALITIES a", payload("first"));
+        cache.put("LOCALITIES a", payload("second"));
+
+        DetailsDiskCache nextSession = new DetailsDiskCache(folder.getRoot());
+        assertEquals("second", nextSession.get("LOCALITIES a", TTL).getString("value"));
+        assertNull(nextSession.get("LOCALITIES b", TTL));
+        assertEquals(1, nextSession.getHitCount());
+        assertEquals(1, nextSession.getMissCount());
+    }
+
+    @Test
+    public void expiredPayloadsAreNotReturned() throws Exception {
+        DetailsDiskCache cache = new DetailsDiskCache(folder.getRoot());
+        cache.put("LOCALITIES a", payload("first"));
+        Thread.sleep(20);
+
+        assertNull(cache.get("LOCALITIES a", 10));
+        assertNull(cache.get("LOCALITIES a", 0));
+        assertEquals("first", cache.get("LOCALITIES a", TTL).getString("value"));
+    }
+
+    @Test
+    public void aPartiallyWrittenRecordIsDropped() throws Exception {
+        DetailsDiskCache cache = new DetailsDiskCache(folder.getRoot());
+        cache.put("LOCALITIES a", payload("first"));
+        cache.put("LOCALITIES b", payload("second"));
+        File log = new File(folder.getRoot(), "multisearch-details.log");
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")){
+            file.setLength(file.length() - 3);
+        }
+
+        DetailsDiskCache nextSession = new DetailsDiskCache(folder.getRoot());
+        assertEquals("first", nextSession.get("LOCALITIES a", TTL).getString("value"));
+        assertNull(nextSession.get("LOCALITIES b", TTL));
+        nextSession.put("LOCALITIES c", payload("third"));
+
+        DetailsDiskCache lastSession = new DetailsDiskCache(folder.getRoot());
+        assertEquals("first", lastSession.get("LOCALITIES a", TTL).getString("value"));
+        assertEquals("third", lastSession.get("LOCALITIES c", TTL).getString("value"));
+    }
+
+    @Test
+    public void theLogIsCompactedOnceFull() throws Exception {
+        long maxSize = 1000;
+        DetailsDiskCache cache = new DetailsDiskCache(folder.getRoot(), maxSize);
+        for (int index = 0; index < 50; index++){
+            cache.put("LOCALITIES " + index, payload("value " + index));
+            cache.put("LOCALITIES latest", payload("value " + index));
+        }
+
+        assertTrue(cache.getSize() <= maxSize);
+        assertNull(cache.get("LOCALITIES 0", TTL));
+        assertEquals("value 49", cache.get("LOCALITIES 49", TTL).getString("value"));
+        assertEquals("value 49", cache.get("LOCALITIES latest", TTL).getString("value"));
+
+        DetailsDiskCache nextSession = new DetailsDiskCache(folder.getRoot(), maxSize);
+        assertEquals("value 49", nextSession.get("LOCALITIES latest", TTL).getString("value"));
+    }
+
+    private static JSONObject payload(String value) throws Exception {
+        return new JSONObject().put("value", value);
+    }
+}
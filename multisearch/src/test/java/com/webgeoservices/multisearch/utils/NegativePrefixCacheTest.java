@@ -0,0 +1,113 @@
+package com.webgeoservices.multisearch.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the lookups, eviction, expiry and persistence of the negative prefix cache
+ */
+public class NegativePrefixCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void inputsExtendingACachedPrefixAreAnswered(){
+        NegativePrefixCache cache = new NegativePrefixCache(16, NegativePrefixCache.DEFAULT_TTL);
+        cache.put("xyz");
+
+        assertTrue(cache.containsPrefixOf("xyz"));
+        assertTrue(cache.containsPrefixOf("xyzw"));
+        assertFalse(cache.containsPrefixOf("xy"));
+        assertFalse(cache.containsPrefixOf("xya"));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void aPrefixReplacesTheStringsExtendingIt(){
+        NegativePrefixCache cache = new NegativePrefixCache(16, NegativePrefixCache.DEFAULT_TTL);
+        cache.put("abcd");
+        cache.put("abce");
+        cache.put("abd");
+        cache.put("abcdef"); //Already answered by abcd
+
+        assertEquals(3, cache.size());
+        cache.put("ab");
+
+        assertEquals(1, cache.size());
+        assertTrue(cache.containsPrefixOf("abcd"));
+        assertTrue(cache.containsPrefixOf("abz"));
+        assertFalse(cache.containsPrefixOf("a"));
+    }
+
+    @Test
+    public void theOldestPrefixIsEvicted(){
+        NegativePrefixCache cache = new NegativePrefixCache(2, NegativePrefixCache.DEFAULT_TTL);
+        cache.put("first");
+        cache.put("second");
+        cache.put("third");
+
+        assertEquals(2, cache.size());
+        assertFalse(cache.containsPrefixOf("first"));
+        assertTrue(cache.containsPrefixOf("second"));
+        assertTrue(cache.containsPrefixOf("third"));
+    }
+
+    @Test
+    public void expiredPrefixesAreIgnored() throws Exception {
+        NegativePrefixCache cache = new NegativePrefixCache(16, 50);
+        cache.put("xyz");
+        Thread.sleep(100);
+
+        assertFalse(cache.containsPrefixOf("xyzw"));
+        cache.put("xyz");
+        assertTrue(cache.containsPrefixOf("xyzw"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void disabledCacheNeverAnswers(){
+        NegativePrefixCache cache = new NegativePrefixCache(0, NegativePrefixCache.DEFAULT_TTL);
+        cache.put("xyz");
+
+        assertFalse(cache.containsPrefixOf("xyz"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void prefixesArePersistedInTheBackground() throws Exception {
+        File file = new File(folder.getRoot(), "negative");
+        NegativePrefixCache cache = new NegativePrefixCache(16, NegativePrefixCache.DEFAULT_TTL, file);
+        cache.put("xyz");
+        cache.put("qwe");
+
+        assertFalse(file.exists()); //Written after SAVE_DELAY, not on the calling thread
+        cache.flush();
+        assertTrue(file.exists());
+
+        NegativePrefixCache nextSession = new NegativePrefixCache(16, NegativePrefixCache.DEFAULT_TTL, file);
+        assertEquals(2, nextSession.size());
+        assertTrue(nextSession.containsPrefixOf("xyzw"));
+        assertTrue(nextSession.containsPrefixOf("qwerty"));
+    }
+
+    @Test
+    public void changesAreWrittenAfterTheSaveDelay() throws Exception {
+        File file = new File(folder.getRoot(), "negative");
+        NegativePrefixCache cache = new NegativePrefixCache(16, NegativePrefixCache.DEFAULT_TTL, file);
+        cache.put("xyz");
+
+        long deadline = System.currentTimeMillis() + NegativePrefixCache.SAVE_DELAY + 2000;
+        while (!file.exists() && System.currentTimeMillis() < deadline){
+            Thread.sleep(50);
+        }
+        assertTrue(file.exists());
+        assertTrue(new NegativePrefixCache(16, NegativePrefixCache.DEFAULT_TTL, file).containsPrefixOf("xyz"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.webgeoservices.multisearch.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks the eviction, expiry, stale window and counters of the response cache
+ */
+public class ResponseCacheTest {
+
+    @Test
+    public void theLeastRecentlyUsedResponseIsEvicted(){
+        ResponseCache<String> cache = new ResponseCache<>(2, ResponseCache.DEFAULT_TTL);
+        cache.put("a", "first");
+        cache.put("b", "second");
+        cache.get("a");
+        cache.put("c", "third");
+
+        assertEquals(2, cache.size());
+        assertEquals("first", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void expiredResponsesAreOnlyServedStaleDuringTheStaleTime() throws Exception {
+        ResponseCache<String> cache = new ResponseCache<>(4, 100, 300);
+        cache.put("a", "first");
+        assertEquals("first", cache.get("a"));
+
+        Thread.sleep(200);
+        assertNull(cache.get("a"));
+        assertEquals("first", cache.getStale("a"));
+        assertEquals(1, cache.getStaleHitCount());
+        assertEquals(1, cache.size());
+
+        Thread.sleep(300);
+        assertNull(cache.getStale("a"));
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void expiredResponsesAreNotServedStaleWithoutStaleTime() throws Exception {
+        ResponseCache<String> cache = new ResponseCache<>(4, 50);
+        cache.put("a", "first");
+        Thread.sleep(100);
+
+        assertNull(cache.get("a"));
+        assertNull(cache.getStale("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void aZeroSizedCacheStoresNothing(){
+        ResponseCache<String> cache = new ResponseCache<>(0, ResponseCache.DEFAULT_TTL);
+        cache.put("a", "first");
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ttlMustBePositive(){
+        new ResponseCache<String>(4, 0);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Generates the expected Fuse.js v6.4.6 results checked by BitapScorerParityTest.
+ * Run from the multisearch directory:
+ *   node src/test/js/generate-fuse-parity.js > src/test/resources/fuse-parity.json
+ */
+const Fuse = require('../../main/assets/fuse_prod.js');
+
+const places = [
+    'Paris', 'paris', 'Paris, France', 'Parisot, Tarn, France', 'Pariso', 'Parigny, Loire, France',
+    'Rue de Paris, Lyon, France', 'Avenue des Champs-Elysees, Paris, France', 'Paris', 'Pari',
+    'Genève, Suisse', 'Genf', 'London, United Kingdom', 'Londonderry, Northern Ireland',
+    'Saint-Martin-de-Valamas, Ardèche, Auvergne-Rhône-Alpes, France', 'Saint-Martin-de-Valgalgues, Gard, Occitanie, France',
+    'Saint-Martin-d\'Hères, Isère, Auvergne-Rhône-Alpes, France', 'Sainte-Marie-de-la-Mer, Pyrénées-Orientales, France'
+];
+
+const longPlaces = [
+    'Saint-Martin-de-Valamas, Ardèche, Auvergne-Rhône-Alpes, France',
+    'Saint-Martin-de-Valgalgues, Gard, Occitanie, France',
+    'Saint-Martin-d\'Hères, Isère, Auvergne-Rhône-Alpes, France',
+    'Saint-Martin-de-Valamas Ardeche Auvergne Rhone Alpes France',
+    'Avenue des Champs-Elysees, 75008 Paris, Ile-de-France, France',
+    'Chemin du Moulin de la Pointe, Saint-Martin-de-Valamas, France',
+    'Paris'
+];
+
+function descriptions(values) {
+    return values.map(function (value) { return {description: value}; });
+}
+
+const defaultOptions = {includeScore: true, findAllMatches: true, ignoreLocation: true, ignoreFieldNorm: true, threshold: 0.6,
+    keys: [{name: 'description', weight: 1}]};
+
+const cases = [
+    {name: 'default options, exact matches and ties', options: defaultOptions, data: descriptions(places), query: 'paris'},
+    {name: 'default options, one typo', options: defaultOptions, data: descriptions(places), query: 'parsi'},
+    {name: 'default options, multi word query', options: defaultOptions, data: descriptions(places), query: 'rue de pari'},
+    {name: 'default options, accented characters', options: defaultOptions, data: descriptions(places), query: 'genève'},
+    {name: 'chunked 45 character query', options: defaultOptions, data: descriptions(longPlaces), query: 'saint-martin-de-valamas, ardèche, auvergne-rh'},
+    {name: 'chunked 64 character query', options: defaultOptions, data: descriptions(longPlaces), query: 'Saint-Martin-de-Valamas, Ardèche, Auvergne-Rhône-Alpes, France'},
+    {name: 'chunked 70 character query', options: defaultOptions, data: descriptions(longPlaces), query: 'avenue des champs-elysees, 75008 paris, ile-de-france, france, europe'},
+    {name: 'field norm', options: Object.assign({}, defaultOptions, {ignoreFieldNorm: false}), data: descriptions(places), query: 'paris'},
+    {name: 'location and distance', options: {includeScore: true, threshold: 0.6, location: 0, distance: 100, keys: ['description']},
+        data: descriptions(places), query: 'paris'},
+    {name: 'location with zero distance', options: {includeScore: true, threshold: 0.6, location: 2, distance: 0, keys: ['description']},
+        data: descriptions(places), query: 'ris'},
+    {name: 'case sensitive', options: Object.assign({}, defaultOptions, {isCaseSensitive: true}), data: descriptions(places), query: 'Paris'},
+    {name: 'weighted and nested keys', options: {includeScore: true, findAllMatches: true, ignoreLocation: true, threshold: 0.5,
+        keys: [{name: 'name', weight: 2}, {name: 'address.city', weight: 1}]},
+        data: [
+            {name: 'Store Paris Opera', address: {city: 'Paris'}},
+            {name: 'Store Lyon', address: {city: 'Lyon'}},
+            {name: 'Paris Store', address: {city: 'Marseille'}},
+            {name: 'Boutique', address: {city: 'Paris'}},
+            {name: 'Parisian Corner', address: {city: ['Nice', 'Paris']}},
+            {name: 'Store Paris Opera', address: {city: 'Paris'}}
+        ], query: 'paris'}
+];
+
+const results = cases.map(function (testCase) {
+    const fuse = new Fuse(testCase.data, testCase.options);
+    testCase.expected = fuse.search(testCase.query).map(function (result) { return [result.refIndex, result.score]; });
+    return testCase;
+});
+process.stdout.write(JSON.stringify(results, null, 1) + '\n');